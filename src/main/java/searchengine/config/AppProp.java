@@ -4,10 +4,91 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Component
 @ConfigurationProperties(prefix = "app")
 public class AppProp {
     private String userAgent;
     private String referrer;
+    private Pipeline pipeline = new Pipeline();
+    private Crawler crawler = new Crawler();
+    private Canonicalization canonicalization = new Canonicalization();
+    private Bulk bulk = new Bulk();
+    private Search search = new Search();
+    private SearchCache searchCache = new SearchCache();
+    private Deduplication deduplication = new Deduplication();
+    private PageIndexing pageIndexing = new PageIndexing();
+
+    @Data
+    public static class Pipeline {
+        private int queueCapacity = 200;
+        private int batchSize = 100;
+        private int analyzerThreads = Runtime.getRuntime().availableProcessors();
+    }
+
+    @Data
+    public static class Crawler {
+        private int fetchThreads = 64;
+        private int parseThreads = Runtime.getRuntime().availableProcessors();
+        private double requestsPerSecond = 5;
+        private int maxConnectionsPerHost = 4;
+        private long bloomFilterExpectedUrls = 0;
+        private double bloomFilterFalsePositiveRate = 0.001;
+        private long checkpointIntervalSeconds = 60;
+    }
+
+    @Data
+    public static class Canonicalization {
+        private boolean enabled = true;
+        private boolean mergeWww = true;
+        private boolean removeTrailingSlash = true;
+        private boolean sortParameters = true;
+        private boolean useRelCanonical = true;
+        private List<String> stripParameters = new ArrayList<>(List.of(
+                "utm_*", "gclid", "fbclid", "yclid", "_openstat"));
+    }
+
+    @Data
+    public static class Deduplication {
+        private boolean enabled = true;
+        private int maxDistance = 3;
+        private int minWords = 50;
+    }
+
+    @Data
+    public static class PageIndexing {
+        private int threads = 2;
+        private int queueCapacity = 100;
+    }
+
+    @Data
+    public static class Bulk {
+        private int insertBatchSize = 1000;
+        private int writerThreads = 4;
+    }
+
+    @Data
+    public static class Search {
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = 100;
+        private long deadlineMillis = 2000;
+        private double maxLemmaPagePercent = 80;
+        private double proximityBoost = 0.5;
+        private ScorerType scorer = ScorerType.BM25;
+        private float bm25K1 = 1.2F;
+        private float bm25B = 0.75F;
+    }
+
+    public enum ScorerType {
+        BM25, RANK
+    }
+
+    @Data
+    public static class SearchCache {
+        private int maxEntries = 10_000;
+        private long maxBytes = 64L * 1024 * 1024;
+    }
 }
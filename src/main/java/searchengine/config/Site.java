@@ -8,4 +8,9 @@ import lombok.Setter;
 public class Site {
     private String url;
     private String name;
+    /**
+     * Необязательные лимиты нагрузки на сайт, переопределяют app.crawler.
+     */
+    private Double requestsPerSecond;
+    private Integer maxConnections;
 }
@@ -8,21 +8,27 @@ import org.springframework.web.bind.annotation.*;
 import searchengine.controllers.response.BadRequest;
 import searchengine.controllers.response.Response;
 import searchengine.controllers.response.StatisticsResponse;
+import searchengine.controllers.response.SuggestResponse;
 import searchengine.persistence.model.Site;
 import searchengine.persistence.repository.SiteRepository;
 import searchengine.services.IndexingService;
 import searchengine.services.SearchService;
 import searchengine.services.StatisticsService;
+import searchengine.services.dto.LemmaCacheStatistics;
+import searchengine.services.dto.SearchCacheStatistics;
 import searchengine.services.dto.SearchResults;
+import searchengine.services.search.SearchCursor;
 
-import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 public class ApiController {
+    private static final int MAX_SUGGESTIONS = 50;
+
     private final StatisticsService statisticsService;
     private final IndexingService indexingService;
     private final SiteRepository siteRepository;
@@ -34,8 +40,13 @@ public class ApiController {
     }
 
     @GetMapping("startIndexing")
-    public ResponseEntity<Object> startIndexing() {
-        if (indexingService.startIndexing()) {
+    public ResponseEntity<Object> startIndexing(@RequestParam(name = "recrawl", required = false, defaultValue = "false")
+                                                boolean recrawl,
+                                                @RequestParam(name = "resume", required = false, defaultValue = "false")
+                                                boolean resume) {
+        IndexingService.Mode mode = resume ? IndexingService.Mode.RESUME
+                : recrawl ? IndexingService.Mode.RECRAWL : IndexingService.Mode.FULL;
+        if (indexingService.startIndexing(mode)) {
             return new ResponseEntity<>(new Response(true), HttpStatus.OK);
         }
         return new ResponseEntity<>(new BadRequest(false, "Indexing already started"), HttpStatus.BAD_REQUEST);
@@ -53,34 +64,61 @@ public class ApiController {
     public ResponseEntity<Object> search(@RequestParam(name = "query", required = false, defaultValue = "") String query,
                                          @RequestParam(name = "site", required = false, defaultValue = "") String site,
                                          @RequestParam(name = "page", required = false, defaultValue = "0") int page,
-                                         @RequestParam(name = "pageSize", required = false, defaultValue = "20") int pageSize) {
+                                         @RequestParam(name = "pageSize", required = false, defaultValue = "20") int pageSize,
+                                         @RequestParam(name = "searchAfter", required = false) String searchAfter) {
         if (query.isEmpty()) {
             return new ResponseEntity<>(new BadRequest(false, "Request is empty"), HttpStatus.BAD_REQUEST);
         }
 
-        List<SearchResults.SearchStatistics> searchData;
+        if (page < 0 || pageSize <= 0) {
+            return new ResponseEntity<>(new BadRequest(false, "Wrong page or pageSize"), HttpStatus.BAD_REQUEST);
+        }
+
+        // С курсором выдача продолжается после него, номер страницы не учитывается
+        SearchCursor after = null;
+        if (searchAfter != null && !searchAfter.isBlank()) {
+            try {
+                after = SearchCursor.decode(searchAfter);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(new BadRequest(false, "Wrong searchAfter"), HttpStatus.BAD_REQUEST);
+            }
+        }
+        int offset = after == null ? page * pageSize : 0;
+        SearchResults searchData;
         Optional<Site> siteByUrl = siteRepository.findByUrl(site);
         if (!site.isBlank() && siteByUrl.isEmpty()) {
             return new ResponseEntity<>(new BadRequest(false, "Required page not found"),
                     HttpStatus.BAD_REQUEST);
         } else if (!site.isBlank() && siteByUrl.isPresent()) {
-            searchData = searchService.siteSearch(query, siteByUrl.get()).stream().toList();
+            searchData = searchService.siteSearch(query, siteByUrl.get(), offset, pageSize, after);
         } else {
-            searchData = searchService.allSiteSearch(query, pageSize).stream().toList();
+            searchData = searchService.allSiteSearch(query, offset, pageSize, after);
         }
 
-        // Начальный индекс и конечный индекс для порции данных
-        int startIndex = page * pageSize;
-        int endIndex = Math.min(startIndex + pageSize, searchData.size());
+        return new ResponseEntity<>(searchData, HttpStatus.OK);
+    }
 
-        List<SearchResults.SearchStatistics> paginatedData = searchData.subList(startIndex, endIndex);
+    @GetMapping("search/cache")
+    public ResponseEntity<SearchCacheStatistics> searchCacheStatistics() {
+        return ResponseEntity.ok(searchService.getCacheStatistics());
+    }
 
-        return new ResponseEntity<>(SearchResults.builder()
-                .result(true)
-                .count(searchData.size())
-                .data(paginatedData)
-                .build(),
-                HttpStatus.OK);
+    @GetMapping("morphology/cache")
+    public ResponseEntity<LemmaCacheStatistics> lemmaCacheStatistics() {
+        return ResponseEntity.ok(statisticsService.getLemmaCacheStatistics());
+    }
+
+    @GetMapping("suggest")
+    public ResponseEntity<Object> suggest(@RequestParam(name = "prefix", required = false, defaultValue = "") String prefix,
+                                          @RequestParam(name = "limit", required = false, defaultValue = "10") int limit) {
+        if (prefix.isBlank()) {
+            return new ResponseEntity<>(new BadRequest(false, "Prefix is empty"), HttpStatus.BAD_REQUEST);
+        }
+        if (limit <= 0) {
+            return new ResponseEntity<>(new BadRequest(false, "Wrong limit"), HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(new SuggestResponse(true,
+                searchService.suggest(prefix, Math.min(limit, MAX_SUGGESTIONS))), HttpStatus.OK);
     }
 
     @PostMapping("indexPage")
@@ -89,7 +127,16 @@ public class ApiController {
             log.info("Page is empty");
             return new ResponseEntity<>(new BadRequest(false, "Page is empty"), HttpStatus.BAD_REQUEST);
         }
-        if (indexingService.urlIndexing(url)) {
+        boolean accepted;
+        try {
+            accepted = indexingService.urlIndexing(url);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(new BadRequest(false, "Site is being indexed"), HttpStatus.BAD_REQUEST);
+        } catch (RejectedExecutionException e) {
+            return new ResponseEntity<>(new BadRequest(false, "Too many pages queued for indexing"),
+                    HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (accepted) {
             log.info("Page " + url + " added for indexing");
             return new ResponseEntity<>(new Response(true), HttpStatus.OK);
         } else {
@@ -0,0 +1,12 @@
+package searchengine.controllers.response;
+
+import lombok.Value;
+import searchengine.services.dto.Suggestion;
+
+import java.util.List;
+
+@Value
+public class SuggestResponse {
+    boolean result;
+    List<Suggestion> suggestions;
+}
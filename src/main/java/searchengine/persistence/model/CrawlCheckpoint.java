@@ -0,0 +1,37 @@
+package searchengine.persistence.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Контрольная точка обхода сайта: адреса, найденные, но ещё не записанные в базу,
+ * и id последней записанной страницы. Страницы с большим id записаны после
+ * контрольной точки и при продолжении обхода удаляются.
+ */
+@Entity
+@Table(name = "crawl_checkpoint")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CrawlCheckpoint {
+    @Id
+    @Column(name = "site_id")
+    private int siteId;
+
+    @Column(name = "last_page_id", nullable = false)
+    private int lastPageId;
+
+    // Адреса через перевод строки, сжатые gzip
+    @Lob
+    @Column(columnDefinition = "LONGBLOB", nullable = false)
+    private byte[] frontier;
+
+    @Column(name = "saved_time", columnDefinition = "DATETIME NOT NULL")
+    private LocalDateTime savedTime;
+}
@@ -18,7 +18,7 @@ import java.io.Serializable;
 @NoArgsConstructor
 public class Index implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -36,10 +36,16 @@ public class Index implements Serializable {
     @Column(name = "`rank`", nullable = false)
     private float rank;
 
-    public Index(int id, Page page, Lemma lemma, float rank) {
+    // Порядковые номера слов с леммой на странице, разности в varint. Читаются только для фразовых запросов
+    @Lob
+    @Column(columnDefinition = "BLOB")
+    private byte[] positions;
+
+    public Index(int id, Page page, Lemma lemma, float rank, byte[] positions) {
         this.id = id;
         this.page = page;
         this.lemma = lemma;
         this.rank = rank;
+        this.positions = positions;
     }
 }
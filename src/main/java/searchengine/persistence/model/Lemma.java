@@ -16,7 +16,7 @@ import java.io.Serializable;
 @NoArgsConstructor
 public class Lemma implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
 
     @Column(columnDefinition = "TEXT", nullable = false)
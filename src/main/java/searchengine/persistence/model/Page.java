@@ -18,7 +18,7 @@ import java.io.Serializable;
 @NoArgsConstructor
 public class Page implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "site_id", nullable = false, foreignKey = @ForeignKey(name = "FK_page_site"))
@@ -33,4 +33,37 @@ public class Page implements Serializable {
 
     @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
     private String content;
+
+    // Заголовок, текст и позиции лемм извлекаются при индексации, чтобы поиск не разбирал HTML
+    @Column(columnDefinition = "TEXT")
+    private String title;
+
+    @Column(name = "plain_text", columnDefinition = "MEDIUMTEXT")
+    private String plainText;
+
+    @Lob
+    @Column(columnDefinition = "MEDIUMBLOB")
+    private byte[] positions;
+
+    @Column(name = "word_count", nullable = false)
+    private int wordCount;
+
+    // Валидаторы ответа и хэш содержимого для повторного обхода без загрузки неизменившихся страниц
+    @Column(length = 255)
+    private String etag;
+
+    @Column(name = "last_modified", length = 64)
+    private String lastModified;
+
+    @Column(name = "content_hash", columnDefinition = "CHAR(64)")
+    private String contentHash;
+
+    // SimHash текста: по нему продолжение обхода и повторный обход находят почти дубликаты сохранённых страниц
+    @Column(name = "simhash")
+    private Long simhash;
+
+    // Путь страницы, почти дубликатом которой оказалась эта. Такая страница хранится
+    // без содержимого и лемм, только чтобы повторный обход не проиндексировал её как новую
+    @Column(name = "duplicate_of", columnDefinition = "TEXT")
+    private String duplicateOf;
 }
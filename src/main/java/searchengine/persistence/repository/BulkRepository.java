@@ -0,0 +1,285 @@
+package searchengine.persistence.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import searchengine.config.AppProp;
+import searchengine.persistence.model.Lemma;
+import searchengine.persistence.model.Page;
+import searchengine.services.dto.IndexStatistics;
+import searchengine.services.dto.PageStatistics;
+
+import javax.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Запись страниц, лемм и индексов многострочными INSERT через JDBC, в обход Hibernate.
+ * Строки индекса делятся на пачки по insertBatchSize и пишутся параллельно
+ * в writerThreads потоков. Внутри транзакции всё пишется в вызывающем потоке,
+ * иначе записи из других потоков оказались бы вне её.
+ */
+@Slf4j
+@Repository
+public class BulkRepository {
+    // Ограничение на объём одного INSERT со страницами, чтобы не упереться в max_allowed_packet
+    private static final long MAX_PAGE_STATEMENT_CHARS = 4L * 1024 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final ExecutorService writers;
+
+    public BulkRepository(JdbcTemplate jdbcTemplate, AppProp appProp) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, appProp.getBulk().getInsertBatchSize());
+        this.writers = Executors.newFixedThreadPool(Math.max(1, appProp.getBulk().getWriterThreads()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdown();
+    }
+
+    /**
+     * Сохраняет страницы сайта и возвращает их id в том же порядке.
+     */
+    public List<Integer> insertPages(int siteId, List<Page> pages) {
+        List<Integer> ids = new ArrayList<>(pages.size());
+        int from = 0;
+        while (from < pages.size()) {
+            int to = from;
+            long chars = 0;
+            while (to < pages.size() && to - from < batchSize
+                    && (to == from || chars + size(pages.get(to)) <= MAX_PAGE_STATEMENT_CHARS)) {
+                chars += size(pages.get(to));
+                to++;
+            }
+            List<Page> chunk = pages.subList(from, to);
+            ids.addAll(insertReturningIds(
+                    "INSERT INTO page (site_id, path, code, content, title, plain_text, positions, word_count, " +
+                            "etag, last_modified, content_hash, simhash, duplicate_of) VALUES ",
+                    "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", chunk.size(), (ps, i, row) -> {
+                        Page page = chunk.get(row);
+                        ps.setInt(i, siteId);
+                        ps.setString(i + 1, page.getPath());
+                        ps.setInt(i + 2, page.getCode());
+                        ps.setString(i + 3, page.getContent());
+                        ps.setString(i + 4, page.getTitle());
+                        ps.setString(i + 5, page.getPlainText());
+                        ps.setBytes(i + 6, page.getPositions());
+                        ps.setInt(i + 7, page.getWordCount());
+                        ps.setString(i + 8, page.getEtag());
+                        ps.setString(i + 9, page.getLastModified());
+                        ps.setString(i + 10, page.getContentHash());
+                        ps.setObject(i + 11, page.getSimhash(), Types.BIGINT);
+                        ps.setString(i + 12, page.getDuplicateOf());
+                        return i + 13;
+                    }));
+            from = to;
+        }
+        return ids;
+    }
+
+    private static long size(Page page) {
+        return page.getContent().length()
+                + (page.getPlainText() == null ? 0 : page.getPlainText().length())
+                + (page.getPositions() == null ? 0 : page.getPositions().length);
+    }
+
+    /**
+     * Сохраняет новые леммы сайта и проставляет им id.
+     */
+    public void insertLemmas(int siteId, List<Lemma> lemmas) {
+        for (int from = 0; from < lemmas.size(); from += batchSize) {
+            List<Lemma> chunk = lemmas.subList(from, Math.min(from + batchSize, lemmas.size()));
+            List<Integer> ids = insertReturningIds("INSERT INTO lemma (site_id, lemma, frequency) VALUES ",
+                    "(?, ?, ?)", chunk.size(), (ps, i, row) -> {
+                        Lemma lemma = chunk.get(row);
+                        ps.setInt(i, siteId);
+                        ps.setString(i + 1, lemma.getLemma());
+                        ps.setFloat(i + 2, lemma.getFrequency());
+                        return i + 3;
+                    });
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setId(ids.get(i));
+            }
+        }
+    }
+
+    /**
+     * Перезаписывает частоту уже сохранённых лемм.
+     */
+    public void updateLemmaFrequencies(int siteId, List<Lemma> lemmas) {
+        parallel(lemmas, chunk -> execute("INSERT INTO lemma (id, site_id, lemma, frequency) VALUES ",
+                "(?, ?, ?, ?)", " ON DUPLICATE KEY UPDATE frequency = VALUES(frequency)", chunk.size(), (ps, i, row) -> {
+                    Lemma lemma = chunk.get(row);
+                    ps.setInt(i, lemma.getId());
+                    ps.setInt(i + 1, siteId);
+                    ps.setString(i + 2, lemma.getLemma());
+                    ps.setFloat(i + 3, lemma.getFrequency());
+                    return i + 4;
+                }));
+    }
+
+    public void insertIndexes(List<IndexStatistics> indexes) {
+        parallel(indexes, chunk -> execute("INSERT INTO `index` (page_id, lemma_id, `rank`, positions) VALUES ",
+                "(?, ?, ?, ?)", "", chunk.size(), (ps, i, row) -> {
+                    IndexStatistics index = chunk.get(row);
+                    ps.setInt(i, index.getPageId());
+                    ps.setInt(i + 1, index.getLemmaId());
+                    ps.setFloat(i + 2, index.getRank());
+                    ps.setBytes(i + 3, index.getPositions());
+                    return i + 4;
+                }));
+    }
+
+    /**
+     * Перезаписывает сохранённую страницу.
+     */
+    public void updatePage(int pageId, Page page) {
+        jdbcTemplate.update("UPDATE page SET code = ?, content = ?, title = ?, plain_text = ?, positions = ?, " +
+                        "word_count = ?, etag = ?, last_modified = ?, content_hash = ?, simhash = ?, duplicate_of = ? " +
+                        "WHERE id = ?",
+                page.getCode(), page.getContent(), page.getTitle(), page.getPlainText(), page.getPositions(),
+                page.getWordCount(), page.getEtag(), page.getLastModified(), page.getContentHash(),
+                page.getSimhash(), page.getDuplicateOf(), pageId);
+    }
+
+    /**
+     * Обновляет валидаторы ответа у страниц, содержимое которых не изменилось.
+     */
+    public void updatePageValidators(Map<Integer, PageStatistics> pages) {
+        List<Object[]> arguments = pages.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue().getEtag(), entry.getValue().getLastModified(), entry.getKey()})
+                .toList();
+        jdbcTemplate.batchUpdate("UPDATE page SET etag = ?, last_modified = ? WHERE id = ?", arguments);
+    }
+
+    public void deletePageIndexes(int pageId) {
+        jdbcTemplate.update("DELETE FROM `index` WHERE page_id = ?", pageId);
+    }
+
+    /**
+     * Прибавляет к частоте лемм разницу: lemma id -> на сколько изменилась частота.
+     */
+    public void addLemmaFrequencies(Map<Integer, Integer> deltas) {
+        List<Object[]> arguments = deltas.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList();
+        jdbcTemplate.batchUpdate("UPDATE lemma SET frequency = frequency + ? WHERE id = ?", arguments);
+    }
+
+    /**
+     * Удаляет страницы сайта, записанные после контрольной точки, вместе с их строками индекса.
+     */
+    public void deletePagesAfter(int siteId, int lastPageId) {
+        jdbcTemplate.update("DELETE FROM page WHERE site_id = ? AND id > ?", siteId, lastPageId);
+    }
+
+    /**
+     * Пересчитывает частоту лемм сайта по строкам индекса и удаляет леммы,
+     * которые не встречаются ни на одной странице.
+     */
+    public void recountLemmaFrequencies(int siteId) {
+        jdbcTemplate.update("UPDATE lemma l LEFT JOIN (SELECT i.lemma_id, COUNT(*) AS pages FROM `index` i " +
+                "JOIN page p ON p.id = i.page_id WHERE p.site_id = ? GROUP BY i.lemma_id) c ON c.lemma_id = l.id " +
+                "SET l.frequency = COALESCE(c.pages, 0) WHERE l.site_id = ?", siteId, siteId);
+        jdbcTemplate.update("DELETE FROM lemma WHERE site_id = ? AND frequency <= 0", siteId);
+    }
+
+    /**
+     * Удаляет из переданных лемм те, что больше не встречаются ни на одной странице.
+     */
+    public void deleteUnusedLemmas(Collection<Integer> lemmaIds) {
+        if (lemmaIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM lemma WHERE frequency <= 0 AND id IN ("
+                + String.join(", ", Collections.nCopies(lemmaIds.size(), "?")) + ")", lemmaIds.toArray());
+    }
+
+    private <T> void parallel(List<T> rows, ChunkWriter<T> writer) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            for (int from = 0; from < rows.size(); from += batchSize) {
+                writer.write(rows.subList(from, Math.min(from + batchSize, rows.size())));
+            }
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<T> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            futures.add(writers.submit(() -> writer.write(chunk)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Запись прервана", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void execute(String insert, String values, String suffix, int rows, RowBinder binder) {
+        String sql = insert + String.join(", ", Collections.nCopies(rows, values)) + suffix;
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                bind(ps, rows, binder);
+                ps.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    private List<Integer> insertReturningIds(String insert, String values, int rows, RowBinder binder) {
+        String sql = insert + String.join(", ", Collections.nCopies(rows, values));
+        return jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                bind(ps, rows, binder);
+                ps.executeUpdate();
+                List<Integer> ids = new ArrayList<>(rows);
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getInt(1));
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    private static void bind(PreparedStatement ps, int rows, RowBinder binder) throws SQLException {
+        int parameter = 1;
+        for (int row = 0; row < rows; row++) {
+            parameter = binder.bind(ps, parameter, row);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowBinder {
+        int bind(PreparedStatement ps, int parameter, int row) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter<T> {
+        void write(List<T> chunk);
+    }
+}
@@ -0,0 +1,18 @@
+package searchengine.persistence.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.persistence.model.CrawlCheckpoint;
+
+@Repository
+public interface CrawlCheckpointRepository extends JpaRepository<CrawlCheckpoint, Integer> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM crawl_checkpoint WHERE site_id = :siteId", nativeQuery = true)
+    void deleteBySiteId(@Param("siteId") int siteId);
+}
@@ -0,0 +1,60 @@
+package searchengine.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Страницы, леммы и строки индекса пишутся в обход Hibernate, и их id выдаёт база.
+ * Схема, созданная до перехода на GenerationType.IDENTITY, получала id из hibernate_sequence,
+ * а ddl-auto: update не добавляет AUTO_INCREMENT к существующим столбцам,
+ * поэтому при запуске недостающий AUTO_INCREMENT добавляется здесь.
+ * Счётчик MySQL сам продолжит нумерацию после максимального id.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdentityColumns {
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        List<String> tables = jdbcTemplate.queryForList("""
+                SELECT table_name FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND column_name = 'id'
+                  AND table_name IN ('page', 'lemma', 'index')
+                  AND extra NOT LIKE '%auto_increment%'""", String.class);
+        if (tables.isEmpty()) {
+            return;
+        }
+        log.warn("Столбцы id таблиц {} без AUTO_INCREMENT, добавляем", tables);
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    // На page.id и lemma.id ссылаются внешние ключи index, без этого MySQL не изменит столбцы
+                    statement.execute("SET FOREIGN_KEY_CHECKS = 0");
+                    try {
+                        for (String table : tables) {
+                            statement.execute("ALTER TABLE `" + table + "` MODIFY id INT NOT NULL AUTO_INCREMENT");
+                        }
+                    } finally {
+                        statement.execute("SET FOREIGN_KEY_CHECKS = 1");
+                    }
+                }
+                return null;
+            });
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Не удалось добавить AUTO_INCREMENT к столбцам id таблиц " + tables
+                    + ". Выполните вручную ALTER TABLE <таблица> MODIFY id INT NOT NULL AUTO_INCREMENT"
+                    + " или пересоздайте схему", e);
+        }
+    }
+}
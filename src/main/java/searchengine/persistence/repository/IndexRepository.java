@@ -6,6 +6,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import searchengine.persistence.model.Index;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,4 +14,39 @@ public interface IndexRepository extends JpaRepository<Index, Integer> {
     @Query(value = "SELECT i.* FROM `index` i WHERE i.lemma_id IN :lemmas AND i.page_id IN :pages", nativeQuery = true)
     List<Index> findByPageTableAndLemmaTable(@Param("lemmas") List<Integer> lemmaListId,
                                              @Param("pages") List<Integer> pageListId);
+
+    @Query(value = "SELECT i.lemma_id AS lemmaId, i.page_id AS pageId, i.`rank` AS weight FROM `index` i " +
+            "JOIN lemma l ON l.id = i.lemma_id WHERE l.site_id = :siteId ORDER BY i.lemma_id, i.page_id", nativeQuery = true)
+    List<PostingRow> findPostingsBySiteId(@Param("siteId") int siteId);
+
+    @Query(value = "SELECT i.page_id AS pageId, i.lemma_id AS lemmaId, i.positions AS positions FROM `index` i " +
+            "WHERE i.lemma_id IN :lemmas AND i.page_id IN :pages", nativeQuery = true)
+    List<PositionRow> findPositions(@Param("lemmas") Collection<Integer> lemmaIds,
+                                    @Param("pages") Collection<Integer> pageIds);
+
+    @Query(value = "SELECT l.id AS id, l.lemma AS lemma FROM `index` i JOIN lemma l ON l.id = i.lemma_id " +
+            "WHERE i.page_id = :pageId", nativeQuery = true)
+    List<PageLemma> findLemmasByPageId(@Param("pageId") int pageId);
+
+    interface PostingRow {
+        int getLemmaId();
+
+        int getPageId();
+
+        float getWeight();
+    }
+
+    interface PageLemma {
+        int getId();
+
+        String getLemma();
+    }
+
+    interface PositionRow {
+        int getPageId();
+
+        int getLemmaId();
+
+        byte[] getPositions();
+    }
 }
@@ -19,4 +19,14 @@ public interface LemmaRepository extends JpaRepository<Lemma, Integer> {
                                          @Param("siteId") int siteId);
 
     List<Lemma> findBySiteTableId(int id);
+
+    @Query(value = "SELECT l.lemma AS lemma, l.frequency AS frequency FROM lemma l WHERE l.site_id = :siteId",
+            nativeQuery = true)
+    List<LemmaFrequency> findFrequenciesBySiteId(@Param("siteId") int siteId);
+
+    interface LemmaFrequency {
+        String getLemma();
+
+        float getFrequency();
+    }
 }
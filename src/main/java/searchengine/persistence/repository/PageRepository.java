@@ -7,15 +7,78 @@ import org.springframework.stereotype.Repository;
 import searchengine.persistence.model.Page;
 import searchengine.persistence.model.Site;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PageRepository extends JpaRepository<Page, Integer> {
-    int countBySiteId(Site siteId);
+    long countByDuplicateOfIsNull();
+
+    int countBySiteIdAndDuplicateOfIsNull(Site siteId);
+
+    int countBySiteIdAndDuplicateOfIsNotNull(Site siteId);
 
     @Query(value = "SELECT * FROM page WHERE site_id = :id", nativeQuery = true)
     List<Page> findAllBySiteId(@Param("id") int id);
 
-    @Query(value = "SELECT p.* FROM page p JOIN `index` i ON p.id = i.page_id WHERE i.lemma_id IN :lemmas", nativeQuery = true)
-    List<Page> findIdsByLemmaList(@Param("lemmas") List<Integer> lemmas);
+    @Query(value = "SELECT p.id AS id, p.site_id AS siteId, p.path AS path, p.title AS title, " +
+            "p.plain_text AS text, p.positions AS positions FROM page p WHERE p.id IN :ids", nativeQuery = true)
+    List<PageSnippetSource> findSnippetSources(@Param("ids") Collection<Integer> ids);
+
+    @Query(value = "SELECT p.id FROM page p WHERE p.site_id = :siteId AND p.path = :path LIMIT 1", nativeQuery = true)
+    Optional<Integer> findIdBySiteIdAndPath(@Param("siteId") int siteId, @Param("path") String path);
+
+    @Query(value = "SELECT p.id AS id, p.word_count AS wordCount FROM page p " +
+            "WHERE p.site_id = :siteId ORDER BY p.id", nativeQuery = true)
+    List<PageLength> findLengthsBySiteId(@Param("siteId") int siteId);
+
+    @Query(value = "SELECT p.path FROM page p WHERE p.site_id = :siteId", nativeQuery = true)
+    List<String> findPathsBySiteId(@Param("siteId") int siteId);
+
+    @Query(value = "SELECT p.id AS id, p.path AS path, p.etag AS etag, p.last_modified AS lastModified, " +
+            "p.content_hash AS contentHash FROM page p WHERE p.site_id = :siteId", nativeQuery = true)
+    List<PageVersionRow> findVersionsBySiteId(@Param("siteId") int siteId);
+
+    @Query(value = "SELECT p.path AS path, p.simhash AS simhash FROM page p " +
+            "WHERE p.site_id = :siteId AND p.simhash IS NOT NULL AND p.duplicate_of IS NULL", nativeQuery = true)
+    List<PageFingerprint> findFingerprintsBySiteId(@Param("siteId") int siteId);
+
+    interface PageLength {
+        int getId();
+
+        int getWordCount();
+    }
+
+    interface PageSnippetSource {
+        int getId();
+
+        int getSiteId();
+
+        String getPath();
+
+        String getTitle();
+
+        String getText();
+
+        byte[] getPositions();
+    }
+
+    interface PageFingerprint {
+        String getPath();
+
+        long getSimhash();
+    }
+
+    interface PageVersionRow {
+        int getId();
+
+        String getPath();
+
+        String getEtag();
+
+        String getLastModified();
+
+        String getContentHash();
+    }
 }
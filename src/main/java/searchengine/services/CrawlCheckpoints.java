@@ -0,0 +1,92 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.AppProp;
+import searchengine.persistence.model.CrawlCheckpoint;
+import searchengine.persistence.model.Site;
+import searchengine.persistence.repository.CrawlCheckpointRepository;
+import searchengine.services.parsers.CrawlProgress;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сохранение контрольных точек обхода не чаще раза в checkpointIntervalSeconds.
+ * Найденные страницы уже лежат в таблице page, поэтому в контрольной точке
+ * хранятся только незаписанные адреса и граница записанных страниц.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CrawlCheckpoints {
+    private final CrawlCheckpointRepository checkpointRepository;
+    private final AppProp appProp;
+    private final Map<Integer, Long> savedAt = new ConcurrentHashMap<>();
+
+    /**
+     * Сохраняет контрольную точку, если с прошлой прошло достаточно времени.
+     * Вызывается после записи пачки страниц, когда все её страницы отмечены в progress.
+     */
+    public void saveIfDue(Site site, CrawlProgress progress) {
+        long interval = TimeUnit.SECONDS.toNanos(appProp.getCrawler().getCheckpointIntervalSeconds());
+        if (interval <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        Long last = savedAt.putIfAbsent(site.getId(), now);
+        if (last == null || now - last < interval) {
+            return;
+        }
+        savedAt.put(site.getId(), now);
+        List<String> pending = progress.pending();
+        checkpointRepository.save(CrawlCheckpoint.builder()
+                .siteId(site.getId())
+                .lastPageId(progress.getLastPageId())
+                .frontier(encode(pending))
+                .savedTime(LocalDateTime.now())
+                .build());
+        log.info("Контрольная точка сайта {}: записаны страницы до id {}, в очереди {} адресов",
+                site.getUrl(), progress.getLastPageId(), pending.size());
+    }
+
+    public Optional<CrawlCheckpoint> find(Site site) {
+        return checkpointRepository.findById(site.getId());
+    }
+
+    public void delete(int siteId) {
+        savedAt.remove(siteId);
+        checkpointRepository.deleteBySiteId(siteId);
+    }
+
+    public static List<String> frontier(CrawlCheckpoint checkpoint) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(checkpoint.getFrontier()))) {
+            String urls = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return urls.isEmpty() ? List.of() : List.of(urls.split("\n"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] encode(List<String> urls) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(String.join("\n", urls).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
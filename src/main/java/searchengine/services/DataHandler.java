@@ -1,22 +1,37 @@
 package searchengine.services;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import searchengine.config.AppProp;
 import searchengine.persistence.model.*;
-import searchengine.persistence.repository.IndexRepository;
+import searchengine.persistence.repository.BulkRepository;
 import searchengine.persistence.repository.LemmaRepository;
 import searchengine.persistence.repository.PageRepository;
 import searchengine.persistence.repository.SiteRepository;
+import searchengine.services.dto.AnalyzedPage;
 import searchengine.services.dto.IndexStatistics;
 import searchengine.services.dto.LemmaStatistics;
+import searchengine.services.dto.PageLemmas;
 import searchengine.services.dto.PageStatistics;
+import searchengine.services.index.InvertedIndex;
+import searchengine.services.index.LemmaDictionary;
+import searchengine.services.index.PositionCodec;
+import searchengine.services.index.SuggestIndex;
+import searchengine.services.parsers.CrawlProgress;
 import searchengine.services.parsers.IndexParser;
+import searchengine.services.parsers.IndexingPipeline;
 import searchengine.services.parsers.LemmaParser;
-import searchengine.services.parsers.UrlParser;
+import searchengine.services.parsers.NearDuplicateIndex;
+import searchengine.utilites.Morphology;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -24,24 +39,101 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class DataHandler {
 
-    private final IndexRepository indexRepository;
-    private final LemmaRepository lemmaRepository;
-    private final PageRepository pageRepository;
     private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final BulkRepository bulkRepository;
     private final LemmaParser lemmaParser;
     private final IndexParser indexParser;
-    private final UrlParser urlParser;
+    private final IndexingPipeline indexingPipeline;
+    private final InvertedIndex invertedIndex;
+    private final SuggestIndex suggestIndex;
+    private final CrawlCheckpoints crawlCheckpoints;
+    private final AppProp appProp;
 
     public void run(searchengine.config.Site site) {
         deleteExistingDataIfPresent(site);
         Site siteTable = initializeSite(site);
+        index(site, siteTable, CrawlProgress.start(), new NearDuplicateIndex(appProp.getDeduplication()),
+                new HashMap<>(), new LemmaDictionary(), false);
+    }
+
+    /**
+     * Продолжает прерванную индексацию сайта с последней контрольной точки.
+     * Страницы, записанные после неё, удаляются и загружаются заново вместе
+     * с ещё не записанными адресами; остальные страницы не загружаются.
+     * Частота лемм в конце пересчитывается по строкам индекса: накопленная
+     * в памяти прерванного обхода частота не сохранилась.
+     * Если контрольной точки нет, сайт индексируется целиком,
+     * а уже проиндексированный сайт не трогается.
+     */
+    public void resume(searchengine.config.Site site) {
+        Optional<Site> existing = siteRepository.findByUrl(site.getUrl());
+        if (existing.isPresent() && existing.get().getStatus() == Status.INDEXED) {
+            log.info("Сайт {} уже проиндексирован, продолжать нечего", site.getUrl());
+            return;
+        }
+        Optional<CrawlCheckpoint> checkpoint = existing.flatMap(crawlCheckpoints::find);
+        if (checkpoint.isEmpty()) {
+            log.info("Контрольной точки для сайта {} нет, запускаем полную индексацию", site.getUrl());
+            run(site);
+            return;
+        }
+        Site siteTable = existing.get();
+        int lastPageId = checkpoint.get().getLastPageId();
+        List<String> frontier = CrawlCheckpoints.frontier(checkpoint.get());
+        log.info("Продолжение индексации сайта {} с контрольной точки от {}: в очереди {} адресов",
+                site.getUrl(), checkpoint.get().getSavedTime(), frontier.size());
+        finalizeSiteStatus(siteTable, Status.INDEXING, null);
+
+        bulkRepository.deletePagesAfter(siteTable.getId(), lastPageId);
+        List<String> indexed = pageRepository.findPathsBySiteId(siteTable.getId()).stream()
+                .map(path -> siteTable.getUrl() + path)
+                .toList();
+        Map<String, Lemma> siteLemmas = new HashMap<>();
+        LemmaDictionary dictionary = new LemmaDictionary();
+        for (Lemma lemma : lemmaRepository.findBySiteTableId(siteTable.getId())) {
+            siteLemmas.put(lemma.getLemma(), lemma);
+            dictionary.put(lemma.getLemma(), lemma.getId());
+        }
+        index(site, siteTable, CrawlProgress.resume(indexed, frontier, lastPageId), storedFingerprints(siteTable),
+                siteLemmas, dictionary, true);
+    }
+
+    /**
+     * Индекс почти дубликатов, заполненный отпечатками сохранённых страниц сайта,
+     * чтобы новые страницы сверялись и с ними, а не только со страницами текущего обхода.
+     */
+    NearDuplicateIndex storedFingerprints(Site siteTable) {
+        NearDuplicateIndex duplicates = new NearDuplicateIndex(appProp.getDeduplication());
+        for (PageRepository.PageFingerprint page : pageRepository.findFingerprintsBySiteId(siteTable.getId())) {
+            duplicates.add(page.getSimhash(), siteTable.getUrl() + page.getPath());
+        }
+        return duplicates;
+    }
 
+    private void index(searchengine.config.Site site, Site siteTable, CrawlProgress progress,
+                       NearDuplicateIndex duplicates, Map<String, Lemma> siteLemmas, LemmaDictionary dictionary,
+                       boolean resumed) {
         try {
-            processPages(siteTable);
-            processLemmas(siteTable);
-            processIndexes(siteTable);
+            log.info("Начало сбора страниц для сайта {}", siteTable.getUrl());
+            int suppressed = indexingPipeline.run(siteTable.getUrl(), progress, duplicates, batch -> {
+                processBatch(siteTable, batch, siteLemmas, dictionary, progress);
+                crawlCheckpoints.saveIfDue(siteTable, progress);
+            });
+            log.info("Пропущено почти одинаковых страниц на сайте {}: {}", siteTable.getUrl(), suppressed);
+            if (resumed) {
+                log.info("Пересчёт частоты лемм для сайта {}", siteTable.getUrl());
+                bulkRepository.recountLemmaFrequencies(siteTable.getId());
+            } else {
+                saveLemmaFrequencies(siteTable, siteLemmas);
+            }
+            crawlCheckpoints.delete(siteTable.getId());
             finalizeSiteStatus(siteTable, Status.INDEXED, null);
+            invertedIndex.rebuild(siteTable);
+            suggestIndex.rebuild(siteTable);
             log.info("Индексация успешно завершена для сайта - {}", site.getUrl());
+            logLemmaCacheStats();
         } catch (Exception e) {
             log.error("Ошибка при индексации сайта {}: {}", site.getUrl(), e.getMessage());
             finalizeSiteStatus(siteTable, Status.FAILED, e.getMessage());
@@ -51,6 +143,9 @@ public class DataHandler {
     private void deleteExistingDataIfPresent(searchengine.config.Site site) {
         siteRepository.findByUrl(site.getUrl()).ifPresent(existingSite -> {
             log.info("Удаление данных для сайта - {}", site.getUrl());
+            crawlCheckpoints.delete(existingSite.getId());
+            invertedIndex.remove(existingSite.getId());
+            suggestIndex.remove(existingSite.getId());
             siteRepository.delete(existingSite);
         });
     }
@@ -65,50 +160,124 @@ public class DataHandler {
         return siteRepository.save(siteTable);
     }
 
-    private void processPages(Site siteTable) throws Exception {
-        List<PageStatistics> pages = collectPageStatistics(siteTable);
-        log.info("Сохранение {} страниц для сайта {}", pages.size(), siteTable.getUrl());
-        pageRepository.saveAll(mapToPageEntities(siteTable, pages));
+    private void processBatch(Site siteTable, List<AnalyzedPage> batch, Map<String, Lemma> siteLemmas,
+                              LemmaDictionary dictionary, CrawlProgress progress) {
+        // Леммы сохраняются первыми: их id нужны для позиций, которые пишутся вместе со страницей
+        processLemmas(siteTable, batch.stream().map(AnalyzedPage::getLemmas).toList(), siteLemmas, dictionary);
+        List<PageLemmas> pages = processPages(siteTable, batch, dictionary);
+        processIndexes(siteTable, pages, dictionary);
+        for (int i = 0; i < batch.size(); i++) {
+            progress.persisted(batch.get(i).getPage().getUrl(), pages.get(i).getPageId());
+        }
     }
 
-    private List<PageStatistics> collectPageStatistics(Site site) {
-        log.info("Начало сбора статистики страниц для сайта {}", site.getUrl());
-        return urlParser.compute(site.getUrl());
+    private List<PageLemmas> processPages(Site siteTable, List<AnalyzedPage> batch, LemmaDictionary dictionary) {
+        log.debug("Сохранение {} страниц для сайта {}", batch.size(), siteTable.getUrl());
+        List<Integer> pageIds = bulkRepository.insertPages(siteTable.getId(),
+                mapToPageEntities(siteTable, batch, dictionary));
+
+        List<PageLemmas> pageLemmas = new ArrayList<>();
+        for (int i = 0; i < pageIds.size(); i++) {
+            pageLemmas.add(batch.get(i).getLemmas().withPageId(pageIds.get(i)));
+        }
+        return pageLemmas;
     }
 
-    private List<Page> mapToPageEntities(Site site, List<PageStatistics> pages) {
+    private List<Page> mapToPageEntities(Site site, List<AnalyzedPage> pages, LemmaDictionary dictionary) {
         return pages.stream()
-                .map(page -> Page.builder()
-                        .siteId(site)
-                        .path(page.getUrl().substring(page.getUrl().indexOf(site.getUrl()) + site.getUrl().length()))
-                        .code(page.getCode())
-                        .content(page.getContent())
-                        .build())
+                .map(analyzed -> toPage(site, analyzed, dictionary))
                 .collect(Collectors.toList());
     }
 
-    private void processLemmas(Site siteTable) throws Exception {
-        List<LemmaStatistics> lemmas = lemmaParser.run();
-        log.info("Сохранение {} лемм для сайта {}", lemmas.size(), siteTable.getUrl());
-        lemmaRepository.saveAll(lemmas.stream()
-                .map(lemmaStat -> Lemma.builder()
+    static Page toPage(Site site, AnalyzedPage analyzed, LemmaDictionary dictionary) {
+        if (analyzed.getDuplicateOf() != null) {
+            return toDuplicate(site, analyzed.getPage(), analyzed.getDuplicateOf());
+        }
+        Page page = toPage(site, analyzed.getPage(), analyzed.getLemmas(), dictionary);
+        page.setSimhash(analyzed.getFingerprint());
+        return page;
+    }
+
+    /**
+     * Почти дубликат хранится без содержимого: нужны только адрес и валидаторы,
+     * по которым повторный обход узнает, что страница не изменилась.
+     */
+    private static Page toDuplicate(Site site, PageStatistics page, String originalUrl) {
+        return Page.builder()
+                .siteId(site)
+                .path(pathOf(site, page.getUrl()))
+                .code(page.getCode())
+                .content("")
+                .etag(page.getEtag())
+                .lastModified(page.getLastModified())
+                .contentHash(page.getContentHash())
+                .duplicateOf(pathOf(site, originalUrl))
+                .build();
+    }
+
+    private static Page toPage(Site site, PageStatistics page, PageLemmas lemmas, LemmaDictionary dictionary) {
+        return Page.builder()
+                .siteId(site)
+                .path(pathOf(site, page.getUrl()))
+                .code(page.getCode())
+                .content(page.getContent())
+                .title(lemmas.getTitle())
+                .plainText(lemmas.getText())
+                .positions(PositionCodec.encode(lemmas.getOffsets(), dictionary))
+                .wordCount(lemmas.getWordCount())
+                .etag(page.getEtag())
+                .lastModified(page.getLastModified())
+                .contentHash(page.getContentHash())
+                .build();
+    }
+
+    static String pathOf(Site site, String url) {
+        return url.substring(url.indexOf(site.getUrl()) + site.getUrl().length());
+    }
+
+    /**
+     * Новые леммы сохраняются сразу, чтобы у них появились id для индекса.
+     * Частота уже известных лемм копится в памяти и записывается
+     * один раз в конце индексации сайта.
+     */
+    private void processLemmas(Site siteTable, List<PageLemmas> pages,
+                               Map<String, Lemma> siteLemmas, LemmaDictionary dictionary) {
+        List<Lemma> newLemmas = new ArrayList<>();
+        for (LemmaStatistics lemmaStat : lemmaParser.run(pages)) {
+            Lemma lemma = siteLemmas.get(lemmaStat.getLemma());
+            if (lemma != null) {
+                lemma.setFrequency(lemma.getFrequency() + lemmaStat.getFrequency());
+            } else {
+                newLemmas.add(Lemma.builder()
                         .lemma(lemmaStat.getLemma())
                         .frequency(lemmaStat.getFrequency())
                         .siteTable(siteTable)
-                        .build())
-                .collect(Collectors.toList()));
-    }
-
-    private void processIndexes(Site siteTable) throws Exception {
-        List<IndexStatistics> indexes = indexParser.run(siteTable);
-        log.info("Сохранение {} индексов для сайта {}", indexes.size(), siteTable.getUrl());
-        indexRepository.saveAll(indexes.stream()
-                .map(indexStat -> Index.builder()
-                        .page(pageRepository.getReferenceById(indexStat.getPageId()))
-                        .lemma(lemmaRepository.getReferenceById(indexStat.getLemmaId()))
-                        .rank(indexStat.getRank())
-                        .build())
-                .collect(Collectors.toList()));
+                        .build());
+            }
+        }
+        log.debug("Сохранение {} новых лемм для сайта {}", newLemmas.size(), siteTable.getUrl());
+        bulkRepository.insertLemmas(siteTable.getId(), newLemmas);
+        for (Lemma lemma : newLemmas) {
+            siteLemmas.put(lemma.getLemma(), lemma);
+            dictionary.put(lemma.getLemma(), lemma.getId());
+        }
+    }
+
+    private void processIndexes(Site siteTable, List<PageLemmas> pages, LemmaDictionary dictionary) {
+        List<IndexStatistics> indexes = indexParser.run(pages, dictionary);
+        log.debug("Сохранение {} индексов для сайта {}", indexes.size(), siteTable.getUrl());
+        bulkRepository.insertIndexes(indexes);
+    }
+
+    private void saveLemmaFrequencies(Site siteTable, Map<String, Lemma> siteLemmas) {
+        log.info("Сохранение частоты {} лемм для сайта {}", siteLemmas.size(), siteTable.getUrl());
+        bulkRepository.updateLemmaFrequencies(siteTable.getId(), new ArrayList<>(siteLemmas.values()));
+    }
+
+    private void logLemmaCacheStats() {
+        CacheStats stats = Morphology.getCacheStats();
+        log.info("Кэш лемм: попаданий {} ({}%), промахов {}, вытеснено {}",
+                stats.hitCount(), Math.round(stats.hitRate() * 100), stats.missCount(), stats.evictionCount());
     }
 
     private void finalizeSiteStatus(Site site, Status status, String errorMessage) {
@@ -2,19 +2,27 @@ package searchengine.services;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
 import searchengine.persistence.model.Status;
 import searchengine.persistence.repository.SiteRepository;
 import searchengine.services.parsers.SiteIndexingTask;
+import searchengine.services.parsers.UrlCanonicalizer;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -23,10 +31,36 @@ public class IndexingService {
     private final DataHandler dataHandler;
     private final SitesList sitesList;
     private final SiteRepository siteRepository;
+    private final PageIndexer pageIndexer;
+    private final SiteRecrawler siteRecrawler;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final PageIndexingExecutor pageIndexingExecutor;
+    // Переиндексация страниц сайта держит блокировку на чтение, индексация сайта - на запись.
+    // StampedLock не привязан к потоку: блокировку страницы берёт поток запроса, а снимает поток пула
+    private final Map<String, StampedLock> siteLocks = new ConcurrentHashMap<>();
     private ForkJoinPool forkJoinPool;
 
-    private boolean checkSite(String url) {
-        return sitesList.getSites().stream().anyMatch(site -> site.getUrl().equals(url));
+    public enum Mode {
+        // Удалить данные сайта и проиндексировать его заново
+        FULL,
+        // Переиндексировать только изменившиеся и новые страницы проиндексированного сайта
+        RECRAWL,
+        // Продолжить прерванную индексацию с контрольной точки
+        RESUME
+    }
+
+    /**
+     * Индексация, шедшая при остановке приложения, уже не идёт: такие сайты
+     * помечаются как FAILED, чтобы её можно было продолжить с контрольной точки.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedIndexing() {
+        siteRepository.findAllByStatus(Status.INDEXING).forEach(site -> {
+            site.setLastError("Индексация прервана остановкой приложения");
+            site.setStatus(Status.FAILED);
+            siteRepository.save(site);
+            log.info("Индексация сайта {} была прервана, статус изменён на FAILED", site.getUrl());
+        });
     }
 
     public boolean isIndexing() {
@@ -34,52 +68,110 @@ public class IndexingService {
                 .anyMatch(site -> Objects.equals(site.getStatus(), Status.INDEXING));
     }
 
+    /**
+     * Переиндексирует одну страницу сайта из конфигурации, не трогая остальные.
+     * Адрес приводится к каноническому виду так же, как ссылки при обходе,
+     * поэтому вариант с www., другим регистром хоста или utm-метками обновляет ту же страницу.
+     *
+     * @return false, если страница не относится ни к одному сайту из конфигурации
+     * @throws IllegalStateException      если сайт страницы сейчас индексируется целиком
+     * @throws RejectedExecutionException если очередь переиндексации страниц заполнена
+     */
     public boolean urlIndexing(String url) {
-        if (!checkSite(url)) {
-            log.info("Сайт с URL {} не найден в списке сайтов для индексации", url);
+        Optional<Site> site = sitesList.getSites().stream()
+                .filter(s -> urlCanonicalizer.canonicalize(url, s.getUrl()).startsWith(s.getUrl()))
+                .findFirst();
+        if (site.isEmpty()) {
+            log.info("Страница {} не относится к сайтам из списка для индексации", url);
             return false;
         }
-        log.info("Запуск переиндексации для сайта - {}", url);
-
-        new Thread(() -> {
-            try {
-                Site site = sitesList.getSites().stream()
-                        .filter(s -> s.getUrl().equals(url))
-                        .findFirst()
-                        .orElseThrow(() -> new NoSuchElementException("Сайт с таким URL не найден: " + url));
-
-                List<Site> sites = new ArrayList<>();
-                sites.add(site);
-
-                forkJoinPool = new ForkJoinPool();
-                ForkJoinTask<Void> task = new SiteIndexingTask(dataHandler, sites);
-                forkJoinPool.invoke(task);
-            } catch (Exception e) {
-                log.error("Ошибка при переиндексации сайта - {}", url, e);
+        String canonical = urlCanonicalizer.canonicalize(url, site.get().getUrl());
+        searchengine.persistence.model.Site siteTable = siteRepository.findByUrl(site.get().getUrl())
+                .orElseGet(() -> siteRepository.save(searchengine.persistence.model.Site.builder()
+                        .url(site.get().getUrl())
+                        .name(site.get().getName())
+                        .status(Status.INDEXED)
+                        .build()));
+        StampedLock lock = siteLock(site.get().getUrl());
+        long stamp = lock.tryReadLock();
+        if (stamp == 0 || siteTable.getStatus() == Status.INDEXING) {
+            if (stamp != 0) {
+                lock.unlockRead(stamp);
             }
-        }).start();
+            throw new IllegalStateException("Сайт " + siteTable.getUrl() + " сейчас индексируется");
+        }
+        log.info("Запуск переиндексации страницы - {}", canonical);
+
+        try {
+            pageIndexingExecutor.execute(() -> {
+                try {
+                    pageIndexer.index(siteTable, canonical);
+                } catch (Exception e) {
+                    log.error("Ошибка при переиндексации страницы - {}", canonical, e);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            lock.unlockRead(stamp);
+            log.warn("Очередь переиндексации страниц заполнена, страница {} отклонена", canonical);
+            throw e;
+        }
 
         return true;
     }
 
-    public boolean startIndexing() {
+    /**
+     * Запускает индексацию всех сайтов из конфигурации.
+     * Индексация сайта ждёт завершения уже принятых переиндексаций его страниц,
+     * а новые до её окончания отклоняются.
+     */
+    public boolean startIndexing(Mode mode) {
         if (isIndexing()) {
             log.info("Индексация уже запущена");
             return false;
         }
 
-        log.info("Запуск индексации для всех сайтов из конфигурации");
+        log.info("Запуск индексации {} для всех сайтов из конфигурации", mode);
 
         new Thread(() -> {
             List<Site> sites = new ArrayList<>(sitesList.getSites());
             forkJoinPool = new ForkJoinPool();
-            ForkJoinTask<Void> task = new SiteIndexingTask(dataHandler, sites);
+            Consumer<Site> indexer = switch (mode) {
+                case FULL -> dataHandler::run;
+                case RECRAWL -> siteRecrawler::recrawl;
+                case RESUME -> dataHandler::resume;
+            };
+            ForkJoinTask<Void> task = new SiteIndexingTask(exclusive(indexer), sites);
             forkJoinPool.invoke(task);
         }).start();
 
         return true;
     }
 
+    private Consumer<Site> exclusive(Consumer<Site> indexer) {
+        return site -> {
+            StampedLock lock = siteLock(site.getUrl());
+            long stamp;
+            try {
+                stamp = lock.writeLockInterruptibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.info("Индексация сайта {} остановлена до начала", site.getUrl());
+                return;
+            }
+            try {
+                indexer.accept(site);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        };
+    }
+
+    private StampedLock siteLock(String siteUrl) {
+        return siteLocks.computeIfAbsent(siteUrl, url -> new StampedLock());
+    }
+
     public boolean stopIndexing() {
         if (!isIndexing()) {
             log.info("Остановка индексации не выполнена, так как индексация не была запущена");
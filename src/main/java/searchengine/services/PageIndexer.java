@@ -0,0 +1,157 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.config.AppProp;
+import searchengine.persistence.model.Lemma;
+import searchengine.persistence.model.Site;
+import searchengine.persistence.repository.BulkRepository;
+import searchengine.persistence.repository.IndexRepository;
+import searchengine.persistence.repository.LemmaRepository;
+import searchengine.persistence.repository.PageRepository;
+import searchengine.services.dto.AnalyzedPage;
+import searchengine.services.dto.IndexStatistics;
+import searchengine.services.dto.PageLemmas;
+import searchengine.services.dto.PageStatistics;
+import searchengine.services.index.InvertedIndex;
+import searchengine.services.index.LemmaDictionary;
+import searchengine.services.index.SuggestIndex;
+import searchengine.services.parsers.IndexParser;
+import searchengine.services.parsers.NearDuplicateIndex;
+import searchengine.services.parsers.PageAnalyzer;
+import searchengine.services.parsers.UrlParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Переиндексация одной страницы без обхода сайта.
+ * Новые леммы страницы сравниваются с её строками индекса: частота лемм,
+ * которые появились или пропали, меняется на единицу, строки индекса страницы
+ * перезаписываются. Все изменения в базе делаются одной транзакцией,
+ * после неё обновляются только затронутые списки в индексе в памяти и частоты
+ * тех же лемм в подсказках (при повторном обходе сайта индекс в памяти и подсказки
+ * перестраиваются один раз в конце).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PageIndexer {
+    private final UrlParser urlParser;
+    private final PageAnalyzer pageAnalyzer;
+    private final IndexParser indexParser;
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+    private final BulkRepository bulkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final InvertedIndex invertedIndex;
+    private final SuggestIndex suggestIndex;
+    private final AppProp appProp;
+
+    /**
+     * Страница, указанная явно, индексируется целиком, даже если похожа на другую;
+     * отпечаток считается, чтобы с ней сверялись следующие обходы.
+     */
+    public void index(Site siteTable, String url) {
+        PageStatistics page = urlParser.fetchPage(url);
+        AnalyzedPage analyzed = pageAnalyzer.analyze(page, new NearDuplicateIndex(appProp.getDeduplication()));
+        PageUpdate update = store(siteTable, analyzed);
+        invertedIndex.updatePage(siteTable, update.pageId(), analyzed.getLemmas().getWordCount(),
+                update.current(), update.removed());
+        Map<String, Integer> deltas = new HashMap<>();
+        update.added().forEach(lemma -> deltas.put(lemma, 1));
+        update.removed().forEach(lemma -> deltas.put(lemma, -1));
+        suggestIndex.update(siteTable, deltas);
+    }
+
+    /**
+     * Переиндексирует уже загруженную страницу только в базе.
+     * Индекс в памяти и подсказки не обновляются: копия индекса сайта на каждую
+     * страницу стоила бы размера сайта, поэтому при обновлении многих страниц подряд
+     * вызывающий перестраивает их один раз в конце.
+     * Почти дубликат другой страницы из duplicates сохраняется без содержимого и лемм.
+     *
+     * @return false, если страница сохранена как почти дубликат
+     */
+    public boolean save(Site siteTable, PageStatistics page, NearDuplicateIndex duplicates) {
+        AnalyzedPage analyzed = pageAnalyzer.analyze(page, duplicates);
+        store(siteTable, analyzed);
+        return analyzed.getDuplicateOf() == null;
+    }
+
+    private PageUpdate store(Site siteTable, AnalyzedPage analyzed) {
+        PageUpdate update;
+        // Параллельные обновления страниц одного сайта могли бы дважды создать одну лемму
+        synchronized (this) {
+            update = transactionTemplate.execute(status -> write(siteTable, analyzed));
+        }
+        log.info("Страница {} переиндексирована: лемм {}, добавлено {}, удалено {}",
+                analyzed.getPage().getUrl(), update.current().size(), update.added().size(), update.removed().size());
+        return update;
+    }
+
+    private PageUpdate write(Site siteTable, AnalyzedPage analyzed) {
+        PageStatistics page = analyzed.getPage();
+        PageLemmas lemmas = analyzed.getLemmas();
+        int siteId = siteTable.getId();
+        Optional<Integer> existingId = pageRepository.findIdBySiteIdAndPath(siteId, DataHandler.pathOf(siteTable, page.getUrl()));
+        Map<String, Integer> oldLemmas = existingId
+                .map(id -> indexRepository.findLemmasByPageId(id).stream()
+                        .collect(Collectors.toMap(IndexRepository.PageLemma::getLemma, IndexRepository.PageLemma::getId)))
+                .orElse(Map.of());
+        Set<String> newLemmas = lemmas.getLemmas();
+
+        List<Lemma> known = newLemmas.isEmpty() ? List.of()
+                : lemmaRepository.findLemmaListBySiteTable(new ArrayList<>(newLemmas), siteId);
+        LemmaDictionary dictionary = LemmaDictionary.of(known);
+        List<Lemma> created = newLemmas.stream()
+                .filter(lemma -> dictionary.getId(lemma) == LemmaDictionary.NOT_FOUND)
+                .map(lemma -> Lemma.builder().lemma(lemma).frequency(1).siteTable(siteTable).build())
+                .toList();
+        bulkRepository.insertLemmas(siteId, created);
+        created.forEach(lemma -> dictionary.put(lemma.getLemma(), lemma.getId()));
+
+        Map<Integer, Integer> deltas = new HashMap<>();
+        known.stream()
+                .filter(lemma -> !oldLemmas.containsKey(lemma.getLemma()))
+                .forEach(lemma -> deltas.put(lemma.getId(), 1));
+        Set<String> removed = new HashSet<>(oldLemmas.keySet());
+        removed.removeAll(newLemmas);
+        removed.forEach(lemma -> deltas.put(oldLemmas.get(lemma), -1));
+        bulkRepository.addLemmaFrequencies(deltas);
+
+        int pageId;
+        if (existingId.isPresent()) {
+            pageId = existingId.get();
+            bulkRepository.updatePage(pageId, DataHandler.toPage(siteTable, analyzed, dictionary));
+            bulkRepository.deletePageIndexes(pageId);
+        } else {
+            pageId = bulkRepository.insertPages(siteId, List.of(DataHandler.toPage(siteTable, analyzed, dictionary))).get(0);
+        }
+        List<IndexStatistics> rows = indexParser.run(List.of(lemmas.withPageId(pageId)), dictionary);
+        bulkRepository.insertIndexes(rows);
+        bulkRepository.deleteUnusedLemmas(removed.stream().map(oldLemmas::get).toList());
+
+        Map<Integer, String> lemmaById = new HashMap<>();
+        newLemmas.forEach(lemma -> lemmaById.put(dictionary.getId(lemma), lemma));
+        Map<String, IndexStatistics> current = rows.stream()
+                .collect(Collectors.toMap(row -> lemmaById.get(row.getLemmaId()), row -> row));
+        Set<String> added = newLemmas.stream()
+                .filter(lemma -> !oldLemmas.containsKey(lemma))
+                .collect(Collectors.toSet());
+        return new PageUpdate(pageId, current, removed, added);
+    }
+
+    private record PageUpdate(int pageId, Map<String, IndexStatistics> current, Set<String> removed,
+                              Set<String> added) {
+    }
+}
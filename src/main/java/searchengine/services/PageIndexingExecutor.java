@@ -0,0 +1,45 @@
+package searchengine.services;
+
+import org.springframework.stereotype.Component;
+import searchengine.config.AppProp;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул для переиндексации отдельных страниц.
+ * Пул и его очередь ограничены: при наплыве запросов /api/indexPage
+ * лишние отклоняются, а не порождают поток на каждый запрос.
+ */
+@Component
+public class PageIndexingExecutor {
+    private final ThreadPoolExecutor executor;
+
+    public PageIndexingExecutor(AppProp appProp) {
+        AppProp.PageIndexing settings = appProp.getPageIndexing();
+        int threads = Math.max(1, settings.getThreads());
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity())), runnable -> {
+            Thread thread = new Thread(runnable, "page-indexing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @throws RejectedExecutionException если очередь заполнена
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+}
@@ -3,180 +3,207 @@ package searchengine.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import searchengine.persistence.model.Index;
-import searchengine.persistence.model.Lemma;
-import searchengine.persistence.model.Page;
+import searchengine.config.AppProp;
 import searchengine.persistence.model.Site;
-import searchengine.persistence.repository.IndexRepository;
-import searchengine.persistence.repository.LemmaRepository;
 import searchengine.persistence.repository.PageRepository;
+import searchengine.persistence.repository.PageRepository.PageSnippetSource;
 import searchengine.persistence.repository.SiteRepository;
+import searchengine.services.dto.SearchCacheStatistics;
 import searchengine.services.dto.SearchResults;
-import searchengine.utilites.CleanHtmlCode;
-import searchengine.utilites.Morphology;
+import searchengine.services.dto.Suggestion;
+import searchengine.services.index.InvertedIndex;
+import searchengine.services.index.PositionCodec;
+import searchengine.services.index.PostingList;
+import searchengine.services.index.SiteIndex;
+import searchengine.services.index.SuggestIndex;
+import searchengine.services.search.PhraseEvaluator;
+import searchengine.services.search.RankedPages;
+import searchengine.services.search.RankingEngine;
+import searchengine.services.search.Scorer;
+import searchengine.services.search.ScorerFactory;
+import searchengine.services.search.SearchCache;
+import searchengine.services.search.SearchCursor;
+import searchengine.services.search.SearchExecutor;
+import searchengine.services.search.SearchQuery;
+import searchengine.services.search.SnippetBuilder;
 
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SearchService {
-    private final LemmaRepository lemmaRepository;
+    private final AppProp appProp;
     private final PageRepository pageRepository;
-    private final IndexRepository indexRepository;
     private final SiteRepository siteRepository;
-
-    public List<SearchResults.SearchStatistics> allSiteSearch(String searchText, int limit) {
+    private final InvertedIndex invertedIndex;
+    private final RankingEngine rankingEngine;
+    private final SnippetBuilder snippetBuilder;
+    private final SearchCache searchCache;
+    private final SearchExecutor searchExecutor;
+    private final PhraseEvaluator phraseEvaluator;
+    private final ScorerFactory scorerFactory;
+    private final SuggestIndex suggestIndex;
+
+    /**
+     * Ищет по всем сайтам. Поиск по каждому сайту идёт параллельно в SearchExecutor
+     * и возвращает offset + limit лучших страниц сайта; списки сайтов сливаются
+     * в общий список, а заголовки и сниппеты строятся только для limit страниц начиная с offset.
+     * Сайты, не ответившие к сроку, пропускаются, и результат помечается неполным.
+     * <p>
+     * Для глубокой выдачи вместо offset передаётся курсор after из поля next
+     * предыдущего ответа: тогда в памяти держатся только limit страниц после курсора.
+     */
+    public SearchResults allSiteSearch(String searchText, int offset, int limit, SearchCursor after) {
 
         try {
             log.info("Getting results of the search \"{}\"", searchText);
-            List<Site> siteList = siteRepository.findAll();
-            List<String> lemmasFromRequest = getLemmaFromSearchText(searchText);
-
-            List<Lemma> foundLemmaList = siteList.stream()
-                    .flatMap(site -> getLemmaListFromSite(lemmasFromRequest, site).stream())
-                    .collect(Collectors.toList());
-
-            List<SearchResults.SearchStatistics> searchData = getFilteredSearchStatistics(foundLemmaList, lemmasFromRequest);
-            searchData.sort(Comparator.comparing(SearchResults.SearchStatistics::getRelevance));
+            SearchQuery query = SearchQuery.parse(searchText.toLowerCase());
+
+            List<Site> sites = siteRepository.findAll();
+            SearchResults searchData = searchCache.get(cacheKey(query, 0, sites, offset, limit, after), () -> {
+                List<Callable<SiteHits>> tasks = sites.stream()
+                        .map(site -> (Callable<SiteHits>) () -> searchSite(site, query, offset + limit + 1, after))
+                        .toList();
+                SearchExecutor.Gathered<SiteHits> gathered = searchExecutor.scatter(tasks);
+                RankedPages merged = rankingEngine.merge(
+                        gathered.results().stream().map(SiteHits::pages).toList(), offset + limit + 1);
+                int[] lemmaIds = gathered.results().stream()
+                        .flatMapToInt(hits -> Arrays.stream(hits.lemmaIds()))
+                        .toArray();
+                return getSearchResults(merged, offset, limit, sites, lemmaIds, gathered.partial());
+            });
             log.info("Search done. Got results.");
 
-            return searchData.stream().limit(limit).collect(Collectors.toList());
+            return searchData;
         } catch (Exception e) {
             log.error("", e);
-            return null;
+            return SearchResults.builder().result(false).data(List.of()).build();
         }
     }
 
-    public List<SearchResults.SearchStatistics> siteSearch(String searchText, Site site) {
+    public SearchResults siteSearch(String searchText, Site site, int offset, int limit, SearchCursor after) {
         log.info("Searching for \"{}\" in - {}", searchText, site.getUrl());
-        List<String> textLemmaList = getLemmaFromSearchText(searchText);
-        List<Lemma> foundLemmaList = getLemmaListFromSite(textLemmaList, site);
+        SearchQuery query = SearchQuery.parse(searchText.toLowerCase());
 
-        List<SearchResults.SearchStatistics> filteredStatistics = getFilteredSearchStatistics(foundLemmaList, textLemmaList);
+        SearchResults filteredStatistics = searchCache.get(
+                cacheKey(query, site.getId(), List.of(site), offset, limit, after), () -> {
+                    SiteHits hits = searchSite(site, query, offset + limit + 1, after);
+                    return getSearchResults(hits.pages(), offset, limit, List.of(site), hits.lemmaIds(), false);
+                });
 
         log.info("Search done. Got results.");
 
         return filteredStatistics;
     }
 
-    private List<String> getLemmaFromSearchText(String searchText) {
-        String[] words = searchText.toLowerCase().split(" ");
-        return Arrays.stream(words)
-                .map(Morphology::getLemma)
-                .flatMap(List::stream)
-                .collect(Collectors.toList());
-    }
-
-    private List<Lemma> getLemmaListFromSite(List<String> lemmas, Site site) {
-        return lemmaRepository.findLemmaListBySiteTable(lemmas, site.getId())
-                .stream()
-                .sorted(Comparator.comparing(Lemma::getFrequency))
-                .toList();
-    }
-
-    private List<SearchResults.SearchStatistics> getSearchStatisticsList(Map<Page, Float> pageList, List<String> lemmasFromRequest) {
-        return pageList.entrySet().stream()
-                .map(entry -> {
-                    Page page = entry.getKey();
-                    Float relevance = entry.getValue();
-                    String content = page.getContent();
-                    Site pageSite = page.getSiteId();
-                    return getSearchStatistics(lemmasFromRequest, page, relevance, content, pageSite);
-                }).collect(Collectors.toList());
+    /**
+     * Подсказки для последнего слова строки: самые частые леммы, начинающиеся с него.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String text = prefix.toLowerCase(Locale.ROOT).strip();
+        return suggestIndex.suggest(text.substring(text.lastIndexOf(' ') + 1), limit);
     }
 
-    private SearchResults.SearchStatistics getSearchStatistics(List<String> textLemmaList, Page page, Float relevance, String content, Site pageSite) {
-        return SearchResults.SearchStatistics.builder()
-                .site(pageSite.getUrl())
-                .siteName(pageSite.getName())
-                .uri(page.getPath())
-                .title(CleanHtmlCode.clear(content, "title"))
-                .snippet(getSnippet(CleanHtmlCode.clear(content, "body"), textLemmaList))
-                .relevance(relevance)
-                .build();
+    public SearchCacheStatistics getCacheStatistics() {
+        return searchCache.getStatistics();
     }
 
-    private String getSnippet(String content, List<String> lemmaList) {
-        List<Integer> lemmaIndex = lemmaList.stream()
-                .flatMap(lemma -> Morphology.findLemmaIndexInText(content, lemma).stream())
-                .collect(Collectors.toList());
-
-        return generateSnippetFromContent(content, lemmaIndex);
+    private SearchCache.Key cacheKey(SearchQuery query, int siteId, List<Site> sites, int offset, int limit,
+                                     SearchCursor after) {
+        Map<Integer, Long> generations = sites.stream()
+                .collect(Collectors.toMap(Site::getId, site -> invertedIndex.generation(site.getId())));
+        return new SearchCache.Key(query, siteId, offset, limit, after, generations);
     }
 
-    private String generateSnippetFromContent(String content, List<Integer> lemmaIndex) {
-        Collections.sort(lemmaIndex);
-        List<String> wordsList = getWordsFromContent(content, lemmaIndex);
-        StringBuilder result = new StringBuilder();
-
-        for (int i = 0; i < wordsList.size() && i <= 3; i++) {
-            result.append(wordsList.get(i)).append("... ");
+    /**
+     * Для запросов с фразами отбираются все страницы со всеми словами запроса,
+     * и фразы проверяются по номерам слов у каждой из них.
+     */
+    private SiteHits searchSite(Site site, SearchQuery query, int limit, SearchCursor after) {
+        Optional<SiteIndex> siteIndex = invertedIndex.get(site.getId());
+        if (siteIndex.isEmpty()) {
+            return new SiteHits(RankedPages.empty(), new int[0]);
         }
+        List<List<PostingList>> postings = siteIndex.get().wordPostings(query.getWords(),
+                appProp.getSearch().getMaxLemmaPagePercent());
+        Scorer scorer = scorerFactory.forSite(siteIndex.get());
+        if (!query.hasPhrases()) {
+            return new SiteHits(rankingEngine.rank(postings, limit, scorer, after), lemmaIds(postings));
+        }
+        RankedPages candidates = rankingEngine.rank(postings, Integer.MAX_VALUE, scorer);
+        return new SiteHits(phraseEvaluator.evaluate(candidates, query, siteIndex.get(), limit, after),
+                lemmaIds(postings));
+    }
 
-        return result.toString();
+    private static int[] lemmaIds(List<List<PostingList>> postings) {
+        return postings.stream().flatMap(List::stream).mapToInt(PostingList::getLemmaId).distinct().toArray();
     }
 
-    private List<String> getWordsFromContent(String content, List<Integer> lemmaIndex) {
-        List<String> result = new ArrayList<>();
-        for (int i = 0; i < lemmaIndex.size(); i++) {
-            int start = lemmaIndex.get(i);
-            int finish = content.indexOf(" ", start);
-            int nextPoint = i + 1;
-            while (nextPoint < lemmaIndex.size() && lemmaIndex.get(nextPoint) - finish > 0 && lemmaIndex.get(nextPoint) - finish < 5) {
-                finish = content.indexOf(" ", lemmaIndex.get(nextPoint));
-                nextPoint += 1;
-            }
-            i = nextPoint - 1;
-            String text = getWordsFromIndex(start, finish, content);
-            result.add(text);
+    /**
+     * Релевантность отдаётся как есть, без нормировки по лучшей странице,
+     * чтобы её можно было сравнивать между запросами.
+     * Для порции начиная с offset из базы читаются сохранённые при индексации
+     * заголовок, текст и позиции лемм; сниппеты строятся по ним параллельно, без разбора HTML.
+     * В rankedPages на одну страницу больше порции: если она есть, в next отдаётся курсор
+     * последней страницы порции. Общее число найденных для этого не годится:
+     * при выдаче с курсором в него входят и страницы до курсора.
+     */
+    private SearchResults getSearchResults(RankedPages rankedPages, int offset, int limit, List<Site> sites,
+                                           int[] lemmaIds, boolean partial) {
+        int from = Math.min(offset, rankedPages.size());
+        int to = Math.min(offset + limit, rankedPages.size());
+        List<Integer> pageIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            pageIds.add(rankedPages.pageId(i));
         }
-        result.sort(Comparator.comparingInt(String::length));
-        return result;
+        Map<Integer, PageSnippetSource> pages = pageIds.isEmpty() ? Map.of()
+                : pageRepository.findSnippetSources(pageIds).stream()
+                .collect(Collectors.toMap(PageSnippetSource::getId, page -> page));
+        Map<Integer, Site> sitesById = sites.stream()
+                .collect(Collectors.toMap(Site::getId, site -> site));
+
+        List<SearchResults.SearchStatistics> data = IntStream.range(from, to)
+                .parallel()
+                .filter(i -> pages.containsKey(rankedPages.pageId(i)))
+                .mapToObj(i -> {
+                    PageSnippetSource page = pages.get(rankedPages.pageId(i));
+                    return getSearchStatistics(page, rankedPages.score(i), sitesById.get(page.getSiteId()), lemmaIds);
+                })
+                .toList();
+        return SearchResults.builder()
+                .result(true)
+                .partial(partial)
+                .next(next(rankedPages, offset, limit))
+                .count(rankedPages.getTotalCount())
+                .data(data)
+                .build();
     }
 
-    private String getWordsFromIndex(int startPoint, int endPoint, String content) {
-        String word = content.substring(startPoint, endPoint).replaceAll("\\)", "");
-        int prevPoint = Math.max(0, content.lastIndexOf(" ", startPoint));
-        int lastPoint = Math.min(content.length(), content.indexOf(" ", endPoint + 30));
-        String text = content.substring(prevPoint, lastPoint);
-        try {
-            text = text.replaceAll(word, "<b>" + word + "</b>");
-        } catch (Exception e) {
-            log.error("Error with parsing in method getWordsFromIndex word {}", word, e);
+    private static String next(RankedPages rankedPages, int offset, int limit) {
+        if (limit == 0 || rankedPages.size() <= offset + limit) {
+            return null;
         }
-        return text;
+        int last = offset + limit - 1;
+        return new SearchCursor(rankedPages.score(last), rankedPages.pageId(last)).encode();
     }
 
-    private List<SearchResults.SearchStatistics> getFilteredSearchStatistics(List<Lemma> lemmaList, List<String> lemmasFromRequest) {
-        List<Page> foundPageList = pageRepository.findIdsByLemmaList(lemmaList.stream().map(Lemma::getId).toList());
-        List<Index> foundIndexList = indexRepository.findByPageTableAndLemmaTable(lemmaList.stream().map(Lemma::getId).toList(),
-                foundPageList.stream().map(Page::getId).toList());
-
-        Map<Page, Float> sortedPageByAbsRelevance = getPageAbsRelevance(foundPageList, foundIndexList);
-        return getSearchStatisticsList(sortedPageByAbsRelevance, lemmasFromRequest);
+    private SearchResults.SearchStatistics getSearchStatistics(PageSnippetSource page, float relevance,
+                                                               Site pageSite, int[] lemmaIds) {
+        int[] spans = PositionCodec.decode(page.getPositions(), lemmaIds);
+        return SearchResults.SearchStatistics.builder()
+                .site(pageSite.getUrl())
+                .siteName(pageSite.getName())
+                .uri(page.getPath())
+                .title(page.getTitle() == null ? "" : page.getTitle())
+                .snippet(snippetBuilder.build(page.getText(), spans))
+                .relevance(relevance)
+                .build();
     }
 
-    private Map<Page, Float> getPageAbsRelevance(List<Page> pageList, List<Index> indexList) {
-        Map<Page, Float> pageWithRelevance = new HashMap<>();
-        if (!pageList.isEmpty()) {
-            pageList.forEach(page -> {
-                double sum = indexList.stream()
-                        .filter(index -> index.getPage().equals(page))
-                        .mapToDouble(Index::getRank)
-                        .sum();
-                pageWithRelevance.put(page, (float) sum);
-            });
-        }
-
-        Map<Page, Float> pageWithAbsRelevance = new HashMap<>();
-        for (Page page : pageWithRelevance.keySet()) {
-            float relativeRelevance = pageWithRelevance.get(page) / Collections.max(pageWithRelevance.values());
-            pageWithAbsRelevance.put(page, relativeRelevance);
-        }
-        return pageWithAbsRelevance.entrySet().stream()
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, Hashtable::new));
+    private record SiteHits(RankedPages pages, int[] lemmaIds) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,109 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.persistence.model.Site;
+import searchengine.persistence.model.Status;
+import searchengine.persistence.repository.BulkRepository;
+import searchengine.persistence.repository.PageRepository;
+import searchengine.persistence.repository.SiteRepository;
+import searchengine.services.dto.PageStatistics;
+import searchengine.services.dto.PageVersion;
+import searchengine.services.index.InvertedIndex;
+import searchengine.services.index.SuggestIndex;
+import searchengine.services.parsers.NearDuplicateIndex;
+import searchengine.services.parsers.UrlCanonicalizer;
+import searchengine.services.parsers.UrlParser;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Повторный обход проиндексированного сайта без удаления его данных.
+ * Неизменившиеся страницы (ответ 304 или тот же хэш содержимого) не разбираются
+ * и не лемматизируются, изменившиеся и новые переиндексируются в базе по одной,
+ * как через /api/indexPage, а индекс в памяти и подсказки перестраиваются
+ * один раз в конце. Новые и изменившиеся страницы сверяются по SimHash с сохранёнными:
+ * почти дубликат сохраняется без содержимого и лемм, как при полной индексации. Сайт, которого ещё нет в базе или чья прошлая
+ * индексация не завершилась, индексируется целиком.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SiteRecrawler {
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final BulkRepository bulkRepository;
+    private final UrlParser urlParser;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final PageIndexer pageIndexer;
+    private final InvertedIndex invertedIndex;
+    private final SuggestIndex suggestIndex;
+    private final DataHandler dataHandler;
+
+    public void recrawl(searchengine.config.Site site) {
+        Optional<Site> existing = siteRepository.findByUrl(site.getUrl())
+                .filter(siteTable -> siteTable.getStatus() == Status.INDEXED);
+        if (existing.isEmpty()) {
+            log.info("Сайт {} не проиндексирован полностью, запускаем полную индексацию", site.getUrl());
+            dataHandler.run(site);
+            return;
+        }
+        Site siteTable = existing.get();
+        updateStatus(siteTable, Status.INDEXING, null);
+
+        try {
+            // Адреса сохранены до появления или смены правил канонизации как есть:
+            // приводим их к тому же виду, что и ссылки обхода, иначе версия страницы
+            // не нашлась бы по адресу загруженной страницы и её вариант обошли бы дважды
+            Map<String, PageVersion> versions = new HashMap<>();
+            for (PageRepository.PageVersionRow row : pageRepository.findVersionsBySiteId(siteTable.getId())) {
+                versions.putIfAbsent(urlCanonicalizer.canonicalize(siteTable.getUrl() + row.getPath(), siteTable.getUrl()),
+                        new PageVersion(row.getId(), row.getEtag(), row.getLastModified(), row.getContentHash()));
+            }
+            AtomicInteger unchanged = new AtomicInteger();
+            AtomicInteger reindexed = new AtomicInteger();
+            AtomicInteger suppressed = new AtomicInteger();
+            NearDuplicateIndex duplicates = dataHandler.storedFingerprints(siteTable);
+            Map<Integer, PageStatistics> revalidated = new ConcurrentHashMap<>();
+
+            urlParser.recrawl(siteTable.getUrl(), List.copyOf(versions.keySet()), versions::get, page -> {
+                if (page.isModified()) {
+                    (pageIndexer.save(siteTable, page, duplicates) ? reindexed : suppressed).incrementAndGet();
+                    return;
+                }
+                unchanged.incrementAndGet();
+                PageVersion version = versions.get(page.getUrl());
+                if (version != null && (!Objects.equals(version.getEtag(), page.getEtag())
+                        || !Objects.equals(version.getLastModified(), page.getLastModified()))) {
+                    revalidated.put(version.getPageId(), page);
+                }
+            });
+            bulkRepository.updatePageValidators(revalidated);
+            if (reindexed.get() + suppressed.get() > 0) {
+                invertedIndex.rebuild(siteTable);
+                suggestIndex.rebuild(siteTable);
+            }
+            updateStatus(siteTable, Status.INDEXED, null);
+            log.info("Повторный обход сайта {} завершён: без изменений {}, переиндексировано {}, почти дубликатов {}",
+                    siteTable.getUrl(), unchanged.get(), reindexed.get(), suppressed.get());
+        } catch (Exception e) {
+            log.error("Ошибка при повторном обходе сайта {}: {}", siteTable.getUrl(), e.getMessage());
+            updateStatus(siteTable, Status.FAILED, e.getMessage());
+        }
+    }
+
+    private void updateStatus(Site site, Status status, String errorMessage) {
+        site.setStatus(status);
+        site.setStatusTime(LocalDateTime.now());
+        site.setLastError(errorMessage);
+        siteRepository.save(site);
+    }
+}
@@ -1,5 +1,6 @@
 package searchengine.services;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import searchengine.controllers.response.StatisticsResponse;
@@ -7,8 +8,10 @@ import searchengine.persistence.model.Site;
 import searchengine.persistence.repository.LemmaRepository;
 import searchengine.persistence.repository.PageRepository;
 import searchengine.persistence.repository.SiteRepository;
+import searchengine.services.dto.LemmaCacheStatistics;
 import searchengine.services.dto.StatisticsData;
 import searchengine.services.dto.TotalStatistics;
+import searchengine.utilites.Morphology;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -27,10 +30,24 @@ public class StatisticsService {
                 .build());
     }
 
+    /**
+     * Статистика кэша нормальных форм слов, общего для индексации и поиска.
+     */
+    public LemmaCacheStatistics getLemmaCacheStatistics() {
+        CacheStats stats = Morphology.getCacheStats();
+        return LemmaCacheStatistics.builder()
+                .entries(Morphology.getCacheSize())
+                .hits(stats.hitCount())
+                .misses(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictions(stats.evictionCount())
+                .build();
+    }
+
     private TotalStatistics totalStatistics() {
         return TotalStatistics.builder()
                 .sites(Integer.parseInt(String.valueOf(siteRepository.count())))
-                .pages(Integer.parseInt(String.valueOf(pageRepository.count())))
+                .pages(Integer.parseInt(String.valueOf(pageRepository.countByDuplicateOfIsNull())))
                 .lemmas(Integer.parseInt(String.valueOf(lemmaRepository.count())))
                 .indexing(true)
                 .build();
@@ -43,8 +60,9 @@ public class StatisticsService {
                 .status(String.valueOf(site.getStatus()))
                 .statusTime(site.getStatusTime())
                 .error(site.getLastError())
-                .pages(pageRepository.countBySiteId(site))
+                .pages(pageRepository.countBySiteIdAndDuplicateOfIsNull(site))
                 .lemmas(lemmaRepository.countById(site.getId()))
+                .duplicates(pageRepository.countBySiteIdAndDuplicateOfIsNotNull(site))
                 .build();
     }
 
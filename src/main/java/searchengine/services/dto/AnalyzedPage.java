@@ -0,0 +1,22 @@
+package searchengine.services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Разобранная страница. У почти дубликата уже сохранённой страницы
+ * леммы пустые, а в duplicateOf указан адрес той страницы.
+ * fingerprint - SimHash текста страницы, если он считался.
+ */
+@Value
+@AllArgsConstructor
+public class AnalyzedPage {
+    PageStatistics page;
+    PageLemmas lemmas;
+    String duplicateOf;
+    Long fingerprint;
+
+    public AnalyzedPage(PageStatistics page, PageLemmas lemmas) {
+        this(page, lemmas, null, null);
+    }
+}
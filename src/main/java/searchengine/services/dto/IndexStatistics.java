@@ -7,11 +7,13 @@ public class IndexStatistics {
     private int pageId;
     private int lemmaId;
     private Float rank;
+    private byte[] positions;
 
-    public IndexStatistics(int pageId, int lemmaId, Float rank) {
+    public IndexStatistics(int pageId, int lemmaId, Float rank, byte[] positions) {
         this.pageId = pageId;
         this.lemmaId = lemmaId;
         this.rank = rank;
+        this.positions = positions;
     }
 
 }
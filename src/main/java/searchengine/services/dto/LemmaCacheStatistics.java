@@ -0,0 +1,14 @@
+package searchengine.services.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class LemmaCacheStatistics {
+    private long entries;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;
+}
@@ -0,0 +1,37 @@
+package searchengine.services.dto;
+
+import lombok.Value;
+import lombok.With;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Результат разбора страницы: леммы заголовка и тела, извлечённый текст,
+ * позиции лемм в тексте тела (пары [начало, конец) подряд в одном массиве)
+ * и порядковые номера слов с каждой леммой для фразового поиска.
+ * Число слов страницы - её длина для нормировки релевантности.
+ */
+@Value
+public class PageLemmas {
+    @With
+    int pageId;
+    Map<String, Integer> titleLemmas;
+    Map<String, Integer> bodyLemmas;
+    String title;
+    String text;
+    Map<String, int[]> offsets;
+    Map<String, int[]> ordinals;
+    int wordCount;
+
+    public static PageLemmas empty() {
+        return new PageLemmas(0, Map.of(), Map.of(), "", "", Map.of(), Map.of(), 0);
+    }
+
+    public Set<String> getLemmas() {
+        Set<String> lemmas = new HashSet<>(titleLemmas.keySet());
+        lemmas.addAll(bodyLemmas.keySet());
+        return lemmas;
+    }
+}
@@ -1,10 +1,32 @@
 package searchengine.services.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Value;
+import lombok.With;
 
+/**
+ * Загруженная страница. Вместе с HTML хранятся валидаторы ответа
+ * (ETag и Last-Modified) и хэш содержимого, по которым повторный обход
+ * узнаёт, что страница не изменилась.
+ * Для неизменившейся страницы modified = false и содержимое не передаётся.
+ */
 @Value
+@AllArgsConstructor
 public class PageStatistics {
+    @With
     String url;
     String content;
     int code;
+    String etag;
+    String lastModified;
+    String contentHash;
+    boolean modified;
+
+    public PageStatistics(String url, String content, int code) {
+        this(url, content, code, null, null, null, true);
+    }
+
+    public static PageStatistics notModified(String url, String etag, String lastModified) {
+        return new PageStatistics(url, "", 304, etag, lastModified, null, false);
+    }
 }
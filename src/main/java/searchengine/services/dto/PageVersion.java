@@ -0,0 +1,14 @@
+package searchengine.services.dto;
+
+import lombok.Value;
+
+/**
+ * Версия сохранённой страницы, с которой сравнивается ответ при повторном обходе.
+ */
+@Value
+public class PageVersion {
+    int pageId;
+    String etag;
+    String lastModified;
+    String contentHash;
+}
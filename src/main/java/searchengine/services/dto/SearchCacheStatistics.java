@@ -0,0 +1,15 @@
+package searchengine.services.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SearchCacheStatistics {
+    private long entries;
+    private long estimatedBytes;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;
+}
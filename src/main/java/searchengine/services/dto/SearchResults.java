@@ -11,8 +11,12 @@ import java.util.List;
 @Jacksonized
 public class SearchResults {
     boolean result;
+    // Часть сайтов не успела ответить, результаты неполные
+    boolean partial;
     int count;
     List<SearchStatistics> data;
+    // Курсор для следующей страницы (параметр searchAfter), null - если она пуста
+    String next;
 
     @Value
     @Builder
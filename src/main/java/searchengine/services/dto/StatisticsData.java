@@ -22,5 +22,6 @@ public class StatisticsData {
         String error;
         int pages;
         int lemmas;
+        int duplicates;
     }
 }
@@ -0,0 +1,9 @@
+package searchengine.services.dto;
+
+import lombok.Value;
+
+@Value
+public class Suggestion {
+    String lemma;
+    int frequency;
+}
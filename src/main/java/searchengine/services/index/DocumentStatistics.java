@@ -0,0 +1,83 @@
+package searchengine.services.index;
+
+import lombok.Getter;
+import searchengine.persistence.repository.PageRepository;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Длины страниц сайта в словах для нормировки релевантности.
+ * Id страниц разных сайтов перемежаются (сайты индексируются параллельно),
+ * поэтому длины хранятся рядом с отсортированным массивом id страниц сайта,
+ * а длина страницы ищется двоичным поиском.
+ */
+public class DocumentStatistics {
+    private final int[] pageIds;
+    private final int[] lengths;
+    @Getter
+    private final int pageCount;
+    private final long totalLength;
+
+    private DocumentStatistics(int[] pageIds, int[] lengths, int pageCount, long totalLength) {
+        this.pageIds = pageIds;
+        this.lengths = lengths;
+        this.pageCount = pageCount;
+        this.totalLength = totalLength;
+    }
+
+    /**
+     * @param pages длины страниц, отсортированные по id
+     */
+    public static DocumentStatistics of(List<PageRepository.PageLength> pages) {
+        int[] pageIds = new int[pages.size()];
+        int[] lengths = new int[pages.size()];
+        long total = 0;
+        int count = 0;
+        for (int i = 0; i < pages.size(); i++) {
+            PageRepository.PageLength page = pages.get(i);
+            pageIds[i] = page.getId();
+            lengths[i] = page.getWordCount();
+            if (page.getWordCount() > 0) {
+                total += page.getWordCount();
+                count++;
+            }
+        }
+        return new DocumentStatistics(pageIds, lengths, count, total);
+    }
+
+    public float getAverageLength() {
+        return pageCount == 0 ? 0 : (float) totalLength / pageCount;
+    }
+
+    public int length(int pageId) {
+        int index = Arrays.binarySearch(pageIds, pageId);
+        return index >= 0 ? lengths[index] : 0;
+    }
+
+    /**
+     * Копия статистики, в которой у страницы новая длина.
+     * Для уже известной страницы копируются только длины, массив id общий.
+     */
+    public DocumentStatistics withLength(int pageId, int length) {
+        int index = Arrays.binarySearch(pageIds, pageId);
+        int previous = index >= 0 ? lengths[index] : 0;
+        int count = pageCount + (length > 0 ? 1 : 0) - (previous > 0 ? 1 : 0);
+        long total = totalLength - previous + length;
+        if (index >= 0) {
+            int[] copy = lengths.clone();
+            copy[index] = length;
+            return new DocumentStatistics(pageIds, copy, count, total);
+        }
+        int insertion = -index - 1;
+        int[] ids = new int[pageIds.length + 1];
+        int[] copy = new int[lengths.length + 1];
+        System.arraycopy(pageIds, 0, ids, 0, insertion);
+        System.arraycopy(lengths, 0, copy, 0, insertion);
+        ids[insertion] = pageId;
+        copy[insertion] = length;
+        System.arraycopy(pageIds, insertion, ids, insertion + 1, pageIds.length - insertion);
+        System.arraycopy(lengths, insertion, copy, insertion + 1, lengths.length - insertion);
+        return new DocumentStatistics(ids, copy, count, total);
+    }
+}
@@ -0,0 +1,115 @@
+package searchengine.services.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import searchengine.persistence.model.Lemma;
+import searchengine.persistence.model.Site;
+import searchengine.persistence.model.Status;
+import searchengine.persistence.repository.IndexRepository;
+import searchengine.persistence.repository.LemmaRepository;
+import searchengine.persistence.repository.PageRepository;
+import searchengine.persistence.repository.SiteRepository;
+import searchengine.services.dto.IndexStatistics;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Обратный индекс всех проиндексированных сайтов, хранящийся в памяти.
+ * Строится из таблиц lemma, index и page при старте приложения
+ * и пересобирается DataHandler после индексации сайта.
+ * <p>
+ * У каждого сайта есть номер поколения индекса, который растёт при каждом
+ * удалении и пересборке. По нему кэш поиска отличает устаревшие результаты.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InvertedIndex {
+    private final SiteRepository siteRepository;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+    private final PageRepository pageRepository;
+
+    private final Map<Integer, SiteIndex> siteIndexes = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> generations = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        siteRepository.findAllByStatus(Status.INDEXED).forEach(this::rebuild);
+    }
+
+    public Optional<SiteIndex> get(int siteId) {
+        return Optional.ofNullable(siteIndexes.get(siteId));
+    }
+
+    public long generation(int siteId) {
+        return generations.getOrDefault(siteId, 0L);
+    }
+
+    public void remove(int siteId) {
+        siteIndexes.remove(siteId);
+        generations.merge(siteId, 1L, Long::sum);
+    }
+
+    /**
+     * Обновляет в индексе одну страницу сайта, не перечитывая остальные из базы.
+     * Если индекса сайта ещё нет, он строится целиком.
+     */
+    public void updatePage(Site site, int pageId, int wordCount,
+                           Map<String, IndexStatistics> current, Set<String> removed) {
+        SiteIndex updated = siteIndexes.computeIfPresent(site.getId(),
+                (id, index) -> index.withPage(pageId, wordCount, current, removed));
+        if (updated == null) {
+            rebuild(site);
+            return;
+        }
+        generations.merge(site.getId(), 1L, Long::sum);
+    }
+
+    public void rebuild(Site site) {
+        Map<Integer, String> lemmas = new HashMap<>();
+        for (Lemma lemma : lemmaRepository.findBySiteTableId(site.getId())) {
+            lemmas.put(lemma.getId(), lemma.getLemma());
+        }
+        List<IndexRepository.PostingRow> rows = indexRepository.findPostingsBySiteId(site.getId());
+        DocumentStatistics documents = DocumentStatistics.of(pageRepository.findLengthsBySiteId(site.getId()));
+
+        Map<String, PostingList> postings = new HashMap<>(lemmas.size() * 2);
+        BitSet pages = new BitSet();
+        int start = 0;
+        while (start < rows.size()) {
+            int lemmaId = rows.get(start).getLemmaId();
+            int end = start;
+            while (end < rows.size() && rows.get(end).getLemmaId() == lemmaId) {
+                end++;
+            }
+            int[] pageIds = new int[end - start];
+            float[] ranks = new float[end - start];
+            for (int i = start; i < end; i++) {
+                pageIds[i - start] = rows.get(i).getPageId();
+                pages.set(pageIds[i - start]);
+                ranks[i - start] = rows.get(i).getWeight();
+            }
+            String lemma = lemmas.get(lemmaId);
+            if (lemma != null) {
+                postings.put(lemma, new PostingList(lemmaId, pageIds, ranks));
+            }
+            start = end;
+        }
+
+        SiteIndex siteIndex = new SiteIndex(site.getId(), documents, pages.cardinality(), postings);
+        siteIndexes.put(site.getId(), siteIndex);
+        generations.merge(site.getId(), 1L, Long::sum);
+        log.info("Индекс в памяти для сайта {}: {} страниц, {} лемм, {} записей",
+                site.getUrl(), siteIndex.getPageCount(), postings.size(), rows.size());
+    }
+}
@@ -0,0 +1,87 @@
+package searchengine.services.index;
+
+import searchengine.persistence.model.Lemma;
+
+import java.util.Collection;
+
+/**
+ * Словарь лемм сайта: строка леммы -> id записи в таблице lemma.
+ * Хеш-таблица с открытой адресацией и линейным пробированием.
+ * Пополняется одним потоком; читать её параллельно можно,
+ * пока никто не пишет (например, из parallelStream, запущенного после записи).
+ */
+public class LemmaDictionary {
+    public static final int NOT_FOUND = -1;
+
+    private String[] keys;
+    private int[] ids;
+    private int mask;
+    private int size;
+
+    public LemmaDictionary() {
+        this(16);
+    }
+
+    private LemmaDictionary(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1);
+    }
+
+    public static LemmaDictionary of(Collection<Lemma> lemmas) {
+        LemmaDictionary dictionary = new LemmaDictionary(lemmas.size());
+        lemmas.forEach(lemma -> dictionary.put(lemma.getLemma(), lemma.getId()));
+        return dictionary;
+    }
+
+    public int getId(String lemma) {
+        int slot = slot(lemma);
+        while (keys[slot] != null) {
+            if (keys[slot].equals(lemma)) {
+                return ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void put(String lemma, int id) {
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int slot = slot(lemma);
+        while (keys[slot] != null && !keys[slot].equals(lemma)) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == null) {
+            size++;
+        }
+        keys[slot] = lemma;
+        ids[slot] = id;
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        int[] oldIds = ids;
+        allocate(oldKeys.length * 2);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                put(oldKeys[i], oldIds[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        ids = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(String lemma) {
+        int hash = lemma.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
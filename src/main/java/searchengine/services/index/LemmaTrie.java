@@ -0,0 +1,240 @@
+package searchengine.services.index;
+
+import searchengine.services.dto.Suggestion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Неизменяемый префиксный словарь лемм с частотами.
+ * Хранится как обход бора в глубину: леммы отсортированы и записаны подряд
+ * в один массив символов, поэтому поддерево любого префикса - непрерывный отрезок.
+ * Отрезок находится двоичным поиском, а самые частые леммы в нём - деревом отрезков
+ * по частоте: на одну подсказку уходит O(log n) без обхода всего поддерева.
+ * Леммы с нулевой частотой хранятся, но не подсказываются.
+ */
+public class LemmaTrie {
+    private final char[] chars;
+    private final int[] offsets;
+    private final int[] frequencies;
+    // Дерево отрезков: в узле - номер самой частой леммы отрезка
+    private final int[] tree;
+    private final int size;
+
+    /**
+     * @param lemmas      леммы в порядке String.compareTo, без повторов
+     * @param frequencies частоты лемм
+     */
+    public LemmaTrie(List<String> lemmas, int[] frequencies) {
+        this.size = lemmas.size();
+        this.offsets = new int[size + 1];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            offsets[i] = length;
+            length += lemmas.get(i).length();
+        }
+        offsets[size] = length;
+        this.chars = new char[length];
+        for (int i = 0; i < size; i++) {
+            lemmas.get(i).getChars(0, lemmas.get(i).length(), chars, offsets[i]);
+        }
+        this.frequencies = frequencies;
+        this.tree = new int[Math.max(1, size * 2)];
+        for (int i = 0; i < size; i++) {
+            tree[size + i] = i;
+        }
+        for (int node = size - 1; node > 0; node--) {
+            tree[node] = better(tree[node * 2], tree[node * 2 + 1]);
+        }
+    }
+
+    private LemmaTrie(LemmaTrie source) {
+        this.chars = source.chars;
+        this.offsets = source.offsets;
+        this.frequencies = source.frequencies.clone();
+        this.tree = source.tree.clone();
+        this.size = source.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Копия словаря с изменёнными частотами лемм.
+     * Если все леммы уже есть в словаре, массив символов общий, а меняются только
+     * их частоты и пути к ним в дереве отрезков. Новые леммы меняют разметку
+     * массива символов, и тогда словарь собирается заново из текущего.
+     *
+     * @param deltas прибавка к частоте леммы; частота не опускается ниже нуля
+     */
+    public LemmaTrie withFrequencies(Map<String, Integer> deltas) {
+        List<String> added = deltas.entrySet().stream()
+                .filter(delta -> delta.getValue() > 0 && indexOf(delta.getKey()) < 0)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+        if (!added.isEmpty()) {
+            return withLemmas(added, deltas);
+        }
+        LemmaTrie copy = new LemmaTrie(this);
+        deltas.forEach((lemma, delta) -> {
+            int index = indexOf(lemma);
+            if (index >= 0) {
+                copy.frequencies[index] = Math.max(0, frequencies[index] + delta);
+                copy.update(index);
+            }
+        });
+        return copy;
+    }
+
+    private LemmaTrie withLemmas(List<String> added, Map<String, Integer> deltas) {
+        List<String> lemmas = new ArrayList<>(size + added.size());
+        int[] merged = new int[size + added.size()];
+        int i = 0;
+        int j = 0;
+        while (i < size || j < added.size()) {
+            String lemma;
+            int frequency;
+            if (j == added.size() || (i < size && compareTo(i, added.get(j)) < 0)) {
+                lemma = lemma(i);
+                frequency = frequencies[i++];
+            } else {
+                lemma = added.get(j++);
+                frequency = 0;
+            }
+            merged[lemmas.size()] = Math.max(0, frequency + deltas.getOrDefault(lemma, 0));
+            lemmas.add(lemma);
+        }
+        return new LemmaTrie(lemmas, merged);
+    }
+
+    /**
+     * Возвращает до limit лемм, начинающихся с prefix, по убыванию частоты.
+     */
+    public List<Suggestion> complete(String prefix, int limit) {
+        int from = lowerBound(prefix);
+        int to = from;
+        // Конец поддерева префикса: первая лемма, которая с него не начинается
+        int high = size;
+        while (to < high) {
+            int middle = (to + high) >>> 1;
+            if (startsWith(middle, prefix)) {
+                to = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        List<Suggestion> suggestions = new ArrayList<>(Math.min(limit, to - from));
+        // Отрезки-кандидаты упорядочены по частоте их лучшей леммы
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> compare(b[0], a[0]));
+        if (from < to && limit > 0) {
+            ranges.add(new int[]{best(from, to), from, to});
+        }
+        while (!ranges.isEmpty() && suggestions.size() < limit) {
+            int[] range = ranges.poll();
+            int index = range[0];
+            if (frequencies[index] <= 0) {
+                // Лучшая из оставшихся лемм не встречается ни на одной странице - остальные тоже
+                break;
+            }
+            suggestions.add(new Suggestion(lemma(index), frequencies[index]));
+            if (range[1] < index) {
+                ranges.add(new int[]{best(range[1], index), range[1], index});
+            }
+            if (index + 1 < range[2]) {
+                ranges.add(new int[]{best(index + 1, range[2]), index + 1, range[2]});
+            }
+        }
+        return suggestions;
+    }
+
+    private String lemma(int index) {
+        return new String(chars, offsets[index], offsets[index + 1] - offsets[index]);
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareTo(middle, prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int indexOf(String lemma) {
+        int index = lowerBound(lemma);
+        return index < size && compareTo(index, lemma) == 0 ? index : -1;
+    }
+
+    private int compareTo(int index, String value) {
+        int start = offsets[index];
+        int length = offsets[index + 1] - start;
+        int common = Math.min(length, value.length());
+        for (int i = 0; i < common; i++) {
+            int diff = chars[start + i] - value.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - value.length();
+    }
+
+    private boolean startsWith(int index, String prefix) {
+        int start = offsets[index];
+        if (offsets[index + 1] - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (chars[start + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Самая частая лемма на отрезке [from, to).
+     */
+    private int best(int from, int to) {
+        int result = from;
+        for (int left = from + size, right = to + size; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                result = better(result, tree[left++]);
+            }
+            if ((right & 1) == 1) {
+                result = better(result, tree[--right]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Пересчитывает узлы дерева отрезков на пути от листа леммы к корню.
+     */
+    private void update(int index) {
+        for (int node = (index + size) >> 1; node > 0; node >>= 1) {
+            tree[node] = better(tree[node * 2], tree[node * 2 + 1]);
+        }
+    }
+
+    private int better(int a, int b) {
+        return compare(a, b) >= 0 ? a : b;
+    }
+
+    /**
+     * Частая лемма больше редкой, при равной частоте больше та, что раньше по алфавиту.
+     */
+    private int compare(int a, int b) {
+        int diff = Integer.compare(frequencies[a], frequencies[b]);
+        return diff != 0 ? diff : Integer.compare(b, a);
+    }
+}
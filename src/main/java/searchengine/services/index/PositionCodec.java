@@ -0,0 +1,163 @@
+package searchengine.services.index;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Компактная запись позиций лемм в тексте страницы.
+ * Для каждой леммы пишутся её id, число вхождений и границы вхождений:
+ * начало - разностью с концом предыдущего вхождения, конец - длиной слова.
+ * Порядковые номера слов для фразового поиска пишутся разностями с предыдущим номером.
+ * Все числа кодируются varint, поэтому типичное вхождение занимает 1-3 байта.
+ */
+@UtilityClass
+public class PositionCodec {
+
+    /**
+     * Кодирует позиции лемм; леммы, которых нет в словаре, пропускаются.
+     */
+    public static byte[] encode(Map<String, int[]> offsets, LemmaDictionary dictionary) {
+        Output out = new Output(offsets.size() * 8);
+        offsets.forEach((lemma, spans) -> {
+            int lemmaId = dictionary.getId(lemma);
+            if (lemmaId == LemmaDictionary.NOT_FOUND) {
+                return;
+            }
+            out.writeVarInt(lemmaId);
+            out.writeVarInt(spans.length / 2);
+            int previousEnd = 0;
+            for (int i = 0; i < spans.length; i += 2) {
+                out.writeVarInt(spans[i] - previousEnd);
+                out.writeVarInt(spans[i + 1] - spans[i]);
+                previousEnd = spans[i + 1];
+            }
+        });
+        return out.toByteArray();
+    }
+
+    /**
+     * Возвращает вхождения лемм с указанными id, отсортированные по началу:
+     * пары [начало, конец) подряд в одном массиве.
+     */
+    public static int[] decode(byte[] positions, int[] lemmaIds) {
+        if (positions == null || lemmaIds.length == 0) {
+            return new int[0];
+        }
+        Input in = new Input(positions);
+        long[] found = new long[16];
+        int size = 0;
+        while (in.hasMore()) {
+            int lemmaId = in.readVarInt();
+            int count = in.readVarInt();
+            boolean wanted = contains(lemmaIds, lemmaId);
+            int previousEnd = 0;
+            for (int i = 0; i < count; i++) {
+                int start = previousEnd + in.readVarInt();
+                int end = start + in.readVarInt();
+                previousEnd = end;
+                if (wanted) {
+                    if (size == found.length) {
+                        found = Arrays.copyOf(found, size * 2);
+                    }
+                    // Начало в старших битах: сортировка long упорядочивает вхождения по началу
+                    found[size++] = ((long) start << 32) | end;
+                }
+            }
+        }
+        Arrays.sort(found, 0, size);
+        int[] spans = new int[size * 2];
+        for (int i = 0; i < size; i++) {
+            spans[i * 2] = (int) (found[i] >>> 32);
+            spans[i * 2 + 1] = (int) found[i];
+        }
+        return spans;
+    }
+
+    /**
+     * Кодирует возрастающие порядковые номера слов.
+     */
+    public static byte[] encodeOrdinals(int[] ordinals) {
+        Output out = new Output(ordinals.length + 1);
+        int previous = 0;
+        for (int ordinal : ordinals) {
+            out.writeVarInt(ordinal - previous);
+            previous = ordinal;
+        }
+        return out.toByteArray();
+    }
+
+    public static int[] decodeOrdinals(byte[] encoded) {
+        if (encoded == null) {
+            return new int[0];
+        }
+        Input in = new Input(encoded);
+        int[] ordinals = new int[encoded.length];
+        int size = 0;
+        int previous = 0;
+        while (in.hasMore()) {
+            previous += in.readVarInt();
+            ordinals[size++] = previous;
+        }
+        return Arrays.copyOf(ordinals, size);
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Output {
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            buffer = new byte[Math.max(16, capacity)];
+        }
+
+        void writeVarInt(int value) {
+            if (size + 5 > buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static class Input {
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        boolean hasMore() {
+            return position < buffer.length;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
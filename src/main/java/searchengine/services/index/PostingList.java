@@ -0,0 +1,102 @@
+package searchengine.services.index;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Список страниц, на которых встречается лемма.
+ * Идентификаторы страниц отсортированы по возрастанию,
+ * ранги хранятся в параллельном массиве того же размера.
+ */
+public class PostingList {
+    @Getter
+    private final int lemmaId;
+    private final int[] pageIds;
+    private final float[] ranks;
+
+    public PostingList(int lemmaId, int[] pageIds, float[] ranks) {
+        this.lemmaId = lemmaId;
+        this.pageIds = pageIds;
+        this.ranks = ranks;
+    }
+
+    public int size() {
+        return pageIds.length;
+    }
+
+    public int pageId(int position) {
+        return pageIds[position];
+    }
+
+    public float rank(int position) {
+        return ranks[position];
+    }
+
+    /**
+     * Копия списка, в которой у страницы ранг rank; страница добавляется, если её не было.
+     */
+    public PostingList with(int pageId, float rank) {
+        int position = Arrays.binarySearch(pageIds, pageId);
+        if (position >= 0) {
+            float[] copy = ranks.clone();
+            copy[position] = rank;
+            return new PostingList(lemmaId, pageIds, copy);
+        }
+        int insertion = -position - 1;
+        int[] newPageIds = new int[pageIds.length + 1];
+        float[] newRanks = new float[ranks.length + 1];
+        System.arraycopy(pageIds, 0, newPageIds, 0, insertion);
+        System.arraycopy(ranks, 0, newRanks, 0, insertion);
+        newPageIds[insertion] = pageId;
+        newRanks[insertion] = rank;
+        System.arraycopy(pageIds, insertion, newPageIds, insertion + 1, pageIds.length - insertion);
+        System.arraycopy(ranks, insertion, newRanks, insertion + 1, ranks.length - insertion);
+        return new PostingList(lemmaId, newPageIds, newRanks);
+    }
+
+    /**
+     * Копия списка без страницы.
+     */
+    public PostingList without(int pageId) {
+        int position = Arrays.binarySearch(pageIds, pageId);
+        if (position < 0) {
+            return this;
+        }
+        int[] newPageIds = new int[pageIds.length - 1];
+        float[] newRanks = new float[ranks.length - 1];
+        System.arraycopy(pageIds, 0, newPageIds, 0, position);
+        System.arraycopy(ranks, 0, newRanks, 0, position);
+        System.arraycopy(pageIds, position + 1, newPageIds, position, pageIds.length - position - 1);
+        System.arraycopy(ranks, position + 1, newRanks, position, ranks.length - position - 1);
+        return new PostingList(lemmaId, newPageIds, newRanks);
+    }
+
+    /**
+     * Первая позиция не раньше from, где id страницы не меньше pageId, или size(), если такой нет.
+     * Поиск галопом: шаг удваивается, пока не перешагнёт искомый id, затем двоичный поиск
+     * в последнем отрезке. Стоимость растёт с логарифмом пропущенного, а не с его длиной.
+     */
+    public int seek(int from, int pageId) {
+        if (from >= pageIds.length || pageIds[from] >= pageId) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        while (low + step < pageIds.length && pageIds[low + step] < pageId) {
+            low += step;
+            step <<= 1;
+        }
+        int high = Math.min(low + step, pageIds.length);
+        // pageIds[low] < pageId, ответ в (low, high]
+        while (low + 1 < high) {
+            int middle = (low + high) >>> 1;
+            if (pageIds[middle] < pageId) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return high;
+    }
+}
@@ -0,0 +1,117 @@
+package searchengine.services.index;
+
+import lombok.Getter;
+import searchengine.services.dto.IndexStatistics;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Неизменяемый обратный индекс одного сайта: лемма -> список страниц.
+ * Хранит и длины страниц сайта: по ним считается релевантность
+ * и отбрасываются слишком частые леммы запроса.
+ */
+public class SiteIndex {
+    @Getter
+    private final int siteId;
+    @Getter
+    private final DocumentStatistics documents;
+    // Страниц, встречающихся хотя бы в одном списке
+    private final int indexedPages;
+    private final Map<String, PostingList> postings;
+
+    public SiteIndex(int siteId, DocumentStatistics documents, int indexedPages, Map<String, PostingList> postings) {
+        this.siteId = siteId;
+        this.documents = documents;
+        this.indexedPages = indexedPages;
+        this.postings = postings;
+    }
+
+    /**
+     * Число страниц сайта. У страниц, проиндексированных до появления word_count, длина 0,
+     * и статистика длин их не учитывает, поэтому берётся и число страниц из списков.
+     */
+    public int getPageCount() {
+        return Math.max(documents.getPageCount(), indexedPages);
+    }
+
+    public PostingList postings(String lemma) {
+        return postings.get(lemma);
+    }
+
+    /**
+     * Возвращает списки страниц для найденных лемм запроса,
+     * начиная с самой редкой.
+     */
+    public List<PostingList> postings(Collection<String> lemmas) {
+        return lemmas.stream()
+                .distinct()
+                .map(postings::get)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparingInt(PostingList::size))
+                .toList();
+    }
+
+    /**
+     * Списки страниц по словам запроса, начиная с самого редкого слова.
+     * Слова, которых нет на сайте, пропускаются. Пропускаются и слова, встречающиеся
+     * более чем на maxPagePercent процентах страниц сайта: они почти не сужают выборку.
+     * Если частые все слова, остаётся самое редкое из них.
+     * Число страниц слова оценивается сверху суммой длин списков его лемм.
+     */
+    public List<List<PostingList>> wordPostings(List<List<String>> words, double maxPagePercent) {
+        List<List<PostingList>> found = words.stream()
+                .map(this::postings)
+                .filter(lists -> !lists.isEmpty())
+                .sorted(Comparator.comparingInt(SiteIndex::size))
+                .toList();
+        double maxPages = getPageCount() * maxPagePercent / 100;
+        List<List<PostingList>> selective = found.stream()
+                .filter(lists -> size(lists) <= maxPages)
+                .toList();
+        return selective.isEmpty() && !found.isEmpty() ? found.subList(0, 1) : selective;
+    }
+
+    private static int size(List<PostingList> lists) {
+        return lists.stream().mapToInt(PostingList::size).sum();
+    }
+
+    /**
+     * Копия индекса с обновлённой страницей.
+     *
+     * @param current леммы страницы после обновления и их строки индекса
+     * @param removed леммы, которых на странице больше нет
+     */
+    public SiteIndex withPage(int pageId, int wordCount, Map<String, IndexStatistics> current, Set<String> removed) {
+        Map<String, PostingList> updated = new HashMap<>(postings);
+        for (String lemma : removed) {
+            PostingList list = updated.get(lemma);
+            if (list != null) {
+                PostingList without = list.without(pageId);
+                if (without.size() == 0) {
+                    updated.remove(lemma);
+                } else {
+                    updated.put(lemma, without);
+                }
+            }
+        }
+        current.forEach((lemma, row) -> {
+            PostingList list = updated.get(lemma);
+            updated.put(lemma, list == null
+                    ? new PostingList(row.getLemmaId(), new int[]{pageId}, new float[]{row.getRank()})
+                    : list.with(pageId, row.getRank()));
+        });
+        // Число страниц из списков не пересчитывается: для него пришлось бы обойти все списки.
+        // Оно нужно только для старых страниц без длины, точное значение даст rebuild
+        return new SiteIndex(siteId, documents.withLength(pageId, wordCount), indexedPages, updated);
+    }
+
+    public int lemmaCount() {
+        return postings.size();
+    }
+}
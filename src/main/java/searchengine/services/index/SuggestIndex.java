@@ -0,0 +1,173 @@
+package searchengine.services.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import searchengine.persistence.model.Site;
+import searchengine.persistence.model.Status;
+import searchengine.persistence.repository.LemmaRepository;
+import searchengine.persistence.repository.SiteRepository;
+import searchengine.services.dto.Suggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Подсказки по префиксу слова из лемм всех проиндексированных сайтов.
+ * Частота леммы - сумма её частот на сайтах.
+ * <p>
+ * Отсортированные леммы каждого сайта хранятся отдельно. После индексации сайта
+ * из базы читаются только его леммы, а общий словарь собирается слиянием
+ * уже отсортированных списков сайтов и подменяется целиком.
+ * После переиндексации одной страницы база не читается и списки не сливаются:
+ * меняются только частоты лемм, появившихся на странице или пропавших с неё.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SuggestIndex {
+    private final SiteRepository siteRepository;
+    private final LemmaRepository lemmaRepository;
+
+    private final Map<Integer, SiteLemmas> siteLemmas = new ConcurrentHashMap<>();
+    private volatile LemmaTrie trie = new LemmaTrie(List.of(), new int[0]);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        siteRepository.findAllByStatus(Status.INDEXED).forEach(site -> siteLemmas.put(site.getId(), load(site)));
+        merge();
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return trie.complete(prefix, limit);
+    }
+
+    public void rebuild(Site site) {
+        siteLemmas.put(site.getId(), load(site));
+        merge();
+    }
+
+    /**
+     * Учитывает переиндексацию одной страницы сайта.
+     *
+     * @param deltas изменение частоты лемм сайта: +1 для появившихся на странице, -1 для пропавших
+     */
+    public synchronized void update(Site site, Map<String, Integer> deltas) {
+        SiteLemmas lemmas = siteLemmas.get(site.getId());
+        if (lemmas == null) {
+            // Сайт ещё не загружался: его леммы из базы уже учитывают страницу
+            rebuild(site);
+            return;
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        siteLemmas.put(site.getId(), lemmas.withFrequencies(deltas));
+        trie = trie.withFrequencies(deltas);
+    }
+
+    public void remove(int siteId) {
+        if (siteLemmas.remove(siteId) != null) {
+            merge();
+        }
+    }
+
+    private SiteLemmas load(Site site) {
+        List<LemmaRepository.LemmaFrequency> rows = new ArrayList<>(lemmaRepository.findFrequenciesBySiteId(site.getId()));
+        // Порядок сортировки базы зависит от collation, словарю нужен порядок String.compareTo
+        rows.sort(Comparator.comparing(LemmaRepository.LemmaFrequency::getLemma));
+        String[] lemmas = new String[rows.size()];
+        int[] frequencies = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            lemmas[i] = rows.get(i).getLemma();
+            frequencies[i] = Math.round(rows.get(i).getFrequency());
+        }
+        return new SiteLemmas(lemmas, frequencies);
+    }
+
+    private synchronized void merge() {
+        Collection<SiteLemmas> sites = List.copyOf(siteLemmas.values());
+        trie = merge(sites);
+        log.info("Словарь подсказок: {} лемм с {} сайтов", trie.size(), sites.size());
+    }
+
+    /**
+     * Сливает отсортированные списки лемм сайтов в общий словарь, складывая частоты одинаковых лемм.
+     */
+    static LemmaTrie merge(Collection<SiteLemmas> sites) {
+        int total = sites.stream().mapToInt(site -> site.lemmas().length).sum();
+        List<String> lemmas = new ArrayList<>(total);
+        int[] frequencies = new int[total];
+
+        // Курсор: {номер сайта, позиция в его списке}
+        List<SiteLemmas> lists = new ArrayList<>(sites);
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(Math.max(1, lists.size()),
+                Comparator.comparing(cursor -> lists.get(cursor[0]).lemmas()[cursor[1]]));
+        for (int i = 0; i < lists.size(); i++) {
+            if (lists.get(i).lemmas().length > 0) {
+                cursors.add(new int[]{i, 0});
+            }
+        }
+        while (!cursors.isEmpty()) {
+            int[] cursor = cursors.poll();
+            SiteLemmas site = lists.get(cursor[0]);
+            String lemma = site.lemmas()[cursor[1]];
+            if (!lemmas.isEmpty() && lemmas.get(lemmas.size() - 1).equals(lemma)) {
+                frequencies[lemmas.size() - 1] += site.frequencies()[cursor[1]];
+            } else {
+                frequencies[lemmas.size()] = site.frequencies()[cursor[1]];
+                lemmas.add(lemma);
+            }
+            if (++cursor[1] < site.lemmas().length) {
+                cursors.add(cursor);
+            }
+        }
+        return new LemmaTrie(lemmas, Arrays.copyOf(frequencies, lemmas.size()));
+    }
+
+    /**
+     * Леммы сайта в порядке String.compareTo и их частоты.
+     */
+    record SiteLemmas(String[] lemmas, int[] frequencies) {
+
+        /**
+         * Копия с изменёнными частотами; леммы, частота которых стала нулевой, удаляются.
+         */
+        SiteLemmas withFrequencies(Map<String, Integer> deltas) {
+            List<String> added = deltas.keySet().stream()
+                    .filter(lemma -> Arrays.binarySearch(lemmas, lemma) < 0)
+                    .sorted()
+                    .toList();
+            String[] updatedLemmas = new String[lemmas.length + added.size()];
+            int[] updatedFrequencies = new int[updatedLemmas.length];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < lemmas.length || j < added.size()) {
+                String lemma;
+                int frequency;
+                if (j == added.size() || (i < lemmas.length && lemmas[i].compareTo(added.get(j)) < 0)) {
+                    lemma = lemmas[i];
+                    frequency = frequencies[i++];
+                } else {
+                    lemma = added.get(j++);
+                    frequency = 0;
+                }
+                frequency += deltas.getOrDefault(lemma, 0);
+                if (frequency > 0) {
+                    updatedLemmas[size] = lemma;
+                    updatedFrequencies[size++] = frequency;
+                }
+            }
+            return new SiteLemmas(Arrays.copyOf(updatedLemmas, size), Arrays.copyOf(updatedFrequencies, size));
+        }
+    }
+}
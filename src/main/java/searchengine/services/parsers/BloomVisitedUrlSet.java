@@ -0,0 +1,71 @@
+package searchengine.services.parsers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Фильтр Блума для очень больших сайтов: занимает фиксированный объём памяти
+ * независимо от длины адресов. С вероятностью falsePositiveRate новый адрес
+ * будет принят за уже найденный и страница не будет загружена.
+ */
+class BloomVisitedUrlSet implements VisitedUrlSet {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLong size = new AtomicLong();
+
+    BloomVisitedUrlSet(long expectedUrls, double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        long optimalBits = (long) Math.ceil(-expectedUrls * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (optimalBits + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedUrls * ln2));
+    }
+
+    @Override
+    public boolean add(String url) {
+        long hash = hash(url);
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        boolean added = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << (bit & 63);
+            long previous = bits.getAndAccumulate(word, mask, (current, m) -> current | m);
+            if ((previous & mask) == 0) {
+                added = true;
+            }
+        }
+        if (added) {
+            size.incrementAndGet();
+        }
+        return added;
+    }
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+    @Override
+    public double bytesPerUrl() {
+        long size = size();
+        return size == 0 ? 0 : (double) bitCount / 8 / size;
+    }
+
+    private static long hash(String url) {
+        // FNV-1a по байтам UTF-8 с финальным перемешиванием
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : url.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
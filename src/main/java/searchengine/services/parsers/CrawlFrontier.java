@@ -0,0 +1,81 @@
+package searchengine.services.parsers;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Граница обхода сайта: новые адреса отмечаются как найденные
+ * и передаются планировщику загрузки.
+ * Обход закончен, когда не осталось ни одного адреса, ожидающего
+ * загрузки или разбора: счётчик pending учитывает и те, и другие.
+ */
+class CrawlFrontier {
+    private final VisitedUrlSet visited;
+    private final Consumer<String> dispatcher;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean closed;
+
+    CrawlFrontier(VisitedUrlSet visited, Consumer<String> dispatcher) {
+        this.visited = visited;
+        this.dispatcher = dispatcher;
+    }
+
+    boolean offer(String url) {
+        if (closed || !visited.add(url)) {
+            return false;
+        }
+        pending.incrementAndGet();
+        dispatcher.accept(url);
+        return true;
+    }
+
+    /**
+     * Отмечает адрес как найденный без загрузки: страница уже есть в базе
+     * или загружена под другим адресом.
+     *
+     * @return true, если адреса ещё не было
+     */
+    boolean markVisited(String url) {
+        return visited.add(url);
+    }
+
+    /**
+     * Не даёт обходу закончиться, пока в него добавляются начальные адреса:
+     * иначе первая страница могла бы успеть обработаться раньше, чем добавлена вторая.
+     * Снимается вызовом done().
+     */
+    void hold() {
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Отмечает, что страница обработана и найденные на ней ссылки уже добавлены.
+     */
+    void done() {
+        if (pending.decrementAndGet() == 0) {
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Ждёт, пока обход закончится или будет прерван.
+     */
+    void await() throws InterruptedException {
+        finished.await();
+    }
+
+    VisitedUrlSet getVisited() {
+        return visited;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+        finished.countDown();
+    }
+}
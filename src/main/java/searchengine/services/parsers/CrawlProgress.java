@@ -0,0 +1,72 @@
+package searchengine.services.parsers;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ход обхода сайта, по которому сохраняется контрольная точка.
+ * В pending лежат адреса, которые уже найдены, но ещё не записаны в базу:
+ * ждут загрузки, разбора или записи. Адрес убирается из pending только
+ * после записи страницы, поэтому любой найденный адрес либо есть в базе,
+ * либо попадёт в контрольную точку и будет загружен снова.
+ */
+public class CrawlProgress {
+    // Восстановленные из контрольной точки: записанные страницы и ещё не записанные адреса
+    private final Collection<String> indexed;
+    private final Collection<String> frontier;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    @Getter
+    private volatile int lastPageId;
+
+    private CrawlProgress(Collection<String> indexed, Collection<String> frontier, int lastPageId) {
+        this.indexed = indexed;
+        this.frontier = frontier;
+        this.lastPageId = lastPageId;
+    }
+
+    public static CrawlProgress start() {
+        return new CrawlProgress(List.of(), List.of(), 0);
+    }
+
+    public static CrawlProgress resume(Collection<String> indexed, Collection<String> frontier, int lastPageId) {
+        return new CrawlProgress(indexed, frontier, lastPageId);
+    }
+
+    /**
+     * Отмечает, что страница записана в базу.
+     */
+    public void persisted(String url, int pageId) {
+        pending.remove(url);
+        lastPageId = Math.max(lastPageId, pageId);
+    }
+
+    /**
+     * Отмечает, что страница загружена, но записываться не будет.
+     */
+    public void skipped(String url) {
+        pending.remove(url);
+    }
+
+    /**
+     * Адреса, которые придётся загрузить заново, если обход прервётся сейчас.
+     */
+    public List<String> pending() {
+        return List.copyOf(pending);
+    }
+
+    void discovered(String url) {
+        pending.add(url);
+    }
+
+    Collection<String> getIndexed() {
+        return indexed;
+    }
+
+    Collection<String> getFrontier() {
+        return frontier;
+    }
+}
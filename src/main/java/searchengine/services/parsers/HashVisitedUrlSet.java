@@ -0,0 +1,36 @@
+package searchengine.services.parsers;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Точное множество адресов на основе ConcurrentHashMap.
+ */
+class HashVisitedUrlSet implements VisitedUrlSet {
+    // Заголовок String + заголовок byte[] + узел ConcurrentHashMap + ячейка таблицы
+    private static final int ENTRY_OVERHEAD_BYTES = 24 + 16 + 32 + 11;
+
+    private final Set<String> urls = ConcurrentHashMap.newKeySet();
+    private final LongAdder totalLength = new LongAdder();
+
+    @Override
+    public boolean add(String url) {
+        if (urls.add(url)) {
+            totalLength.add(url.length());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long size() {
+        return urls.size();
+    }
+
+    @Override
+    public double bytesPerUrl() {
+        long size = size();
+        return size == 0 ? 0 : ENTRY_OVERHEAD_BYTES + (double) totalLength.sum() / size;
+    }
+}
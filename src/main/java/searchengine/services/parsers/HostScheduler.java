@@ -0,0 +1,209 @@
+package searchengine.services.parsers;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.AppProp;
+import searchengine.config.Site;
+import searchengine.config.SitesList;
+
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Планировщик запросов к сайтам с ограничением нагрузки на каждый хост.
+ * У хоста своя очередь, «ведро токенов» на requestsPerSecond запросов в секунду
+ * и лимит одновременных соединений. Если токенов нет, очередь хоста
+ * разбирается по таймеру, а не спящим потоком, поэтому ожидание
+ * не занимает потоки загрузки. Задачи остановленного обхода выбрасываются
+ * из очереди без расхода токенов, а опустевшая очередь хоста удаляется.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HostScheduler {
+    private final AppProp appProp;
+    private final SitesList sitesList;
+
+    private final Map<String, HostQueue> hosts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "host-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Ставит загрузку адреса в очередь его хоста.
+     * Задача будет выполнена на executor, когда это позволят лимиты хоста,
+     * или выброшена, если к этому времени cancelled вернёт true.
+     */
+    public void submit(String url, Executor executor, BooleanSupplier cancelled, Runnable task) {
+        String host = hostOf(url);
+        Task next = new Task(executor, cancelled, task);
+        // Очередь могла быть удалена как опустевшая между поиском и добавлением
+        while (!hosts.computeIfAbsent(host, this::createHostQueue).add(next)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private HostQueue createHostQueue(String host) {
+        AppProp.Crawler settings = appProp.getCrawler();
+        Optional<Site> site = sitesList.getSites().stream()
+                .filter(s -> hostOf(s.getUrl()).equals(host))
+                .findFirst();
+        double requestsPerSecond = site.map(Site::getRequestsPerSecond)
+                .orElse(settings.getRequestsPerSecond());
+        int maxConnections = site.map(Site::getMaxConnections)
+                .orElse(settings.getMaxConnectionsPerHost());
+        log.info("Лимиты для хоста {}: {} запросов в секунду, {} соединений", host, requestsPerSecond, maxConnections);
+        return new HostQueue(host, requestsPerSecond, maxConnections);
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = new URI(url).getHost();
+            return host == null ? url : host.toLowerCase(Locale.ROOT);
+        } catch (Exception e) {
+            return url;
+        }
+    }
+
+    private class HostQueue {
+        private final String host;
+        private final Queue<Task> queue = new ArrayDeque<>();
+        private final double requestsPerSecond;
+        private final int maxConnections;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+        private int active;
+        private boolean drainScheduled;
+        private boolean removed;
+
+        HostQueue(String host, double requestsPerSecond, int maxConnections) {
+            this.host = host;
+            this.requestsPerSecond = requestsPerSecond > 0 ? requestsPerSecond : Double.MAX_VALUE;
+            this.maxConnections = Math.max(1, maxConnections);
+            this.tokens = 1;
+        }
+
+        /**
+         * @return false, если очередь уже удалена и задачу надо добавить в новую
+         */
+        boolean add(Task task) {
+            synchronized (this) {
+                if (removed) {
+                    return false;
+                }
+                queue.add(task);
+            }
+            drain();
+            return true;
+        }
+
+        private void drain() {
+            while (true) {
+                Task next;
+                synchronized (this) {
+                    while (!queue.isEmpty() && queue.peek().cancelled().getAsBoolean()) {
+                        queue.poll();
+                    }
+                    if (active >= maxConnections || drainScheduled) {
+                        return;
+                    }
+                    refill();
+                    if (queue.isEmpty()) {
+                        removeIfIdle();
+                        return;
+                    }
+                    if (tokens < 1) {
+                        scheduleDrain();
+                        return;
+                    }
+                    tokens -= 1;
+                    active++;
+                    next = queue.poll();
+                }
+                start(next);
+            }
+        }
+
+        /**
+         * Удаляет очередь без задач и соединений. Пока токенов меньше одного, удалять рано:
+         * новая очередь начнёт с полным токеном и превысит лимит, поэтому проверка повторяется по таймеру.
+         */
+        private void removeIfIdle() {
+            if (active > 0) {
+                return;
+            }
+            if (tokens < 1) {
+                scheduleDrain();
+                return;
+            }
+            removed = true;
+            hosts.remove(host, this);
+        }
+
+        private void scheduleDrain() {
+            long delay = (long) ((1 - tokens) / requestsPerSecond * TimeUnit.SECONDS.toNanos(1));
+            drainScheduled = true;
+            timer.schedule(this::scheduledDrain, delay, TimeUnit.NANOSECONDS);
+        }
+
+        private void scheduledDrain() {
+            synchronized (this) {
+                drainScheduled = false;
+            }
+            drain();
+        }
+
+        private void start(Task next) {
+            try {
+                next.executor().execute(() -> {
+                    try {
+                        next.task().run();
+                    } finally {
+                        release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Обход, которому принадлежит задача, уже завершён
+                release();
+            }
+        }
+
+        private void release() {
+            synchronized (this) {
+                active--;
+            }
+            drain();
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            double elapsed = (now - lastRefill) / (double) TimeUnit.SECONDS.toNanos(1);
+            // Не копим больше токенов, чем соединений, чтобы не было всплесков после простоя
+            tokens = Math.min(maxConnections, tokens + elapsed * requestsPerSecond);
+            lastRefill = now;
+        }
+    }
+
+    private record Task(Executor executor, BooleanSupplier cancelled, Runnable task) {
+    }
+}
@@ -1,65 +1,49 @@
 package searchengine.services.parsers;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import searchengine.persistence.model.Lemma;
-import searchengine.persistence.model.Page;
-import searchengine.persistence.model.Site;
-import searchengine.persistence.repository.LemmaRepository;
-import searchengine.persistence.repository.PageRepository;
 import searchengine.services.dto.IndexStatistics;
-import searchengine.utilites.CleanHtmlCode;
-import searchengine.utilites.Morphology;
+import searchengine.services.dto.PageLemmas;
+import searchengine.services.index.LemmaDictionary;
+import searchengine.services.index.PositionCodec;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
+/**
+ * Строит строки индекса: ранг леммы на странице и сжатые порядковые номера
+ * её слов для фразового поиска.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class IndexParser {
 
-    private final PageRepository pageRepository;
-    private final LemmaRepository lemmaRepository;
-
-    public List<IndexStatistics> run(Site site) {
-        List<Page> pages = pageRepository.findAllBySiteId(site.getId());
-        List<Lemma> lemmas = lemmaRepository.findBySiteTableId(site.getId());
-
+    public List<IndexStatistics> run(List<PageLemmas> pages, LemmaDictionary dictionary) {
         return pages.parallelStream()
-                .filter(page -> page.getCode() < 400)
-                .flatMap(page -> processPage(page, lemmas).stream())
+                .flatMap(page -> processPage(page, dictionary).stream())
                 .collect(Collectors.toList());
     }
 
-    private List<IndexStatistics> processPage(Page page, List<Lemma> lemmas) {
-        Map<String, Integer> titleLemmas = extractLemmas(page.getContent(), "title");
-        Map<String, Integer> bodyLemmas = extractLemmas(page.getContent(), "body");
-
-        return titleLemmas.keySet().stream()
-                .map(lemma -> createIndexStatistics(lemma, titleLemmas, bodyLemmas, page, lemmas))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
+    private List<IndexStatistics> processPage(PageLemmas page, LemmaDictionary dictionary) {
+        return page.getLemmas().stream()
+                .map(lemma -> createIndexStatistics(lemma, page, dictionary))
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
-    private Map<String, Integer> extractLemmas(String content, String tag) {
-        String text = CleanHtmlCode.clear(content, tag);
-        return Morphology.getLemmaList(text);
-    }
-
-    private Optional<IndexStatistics> createIndexStatistics(
-            String lemmaWord, Map<String, Integer> titleLemmas, Map<String, Integer> bodyLemmas, Page page, List<Lemma> lemmas) {
-        return lemmas.stream()
-                .filter(lemma -> lemma.getLemma().equals(lemmaWord))
-                .findFirst()
-                .map(lemma -> {
-                    float rank = calculateRank(titleLemmas, bodyLemmas, lemma.getLemma());
-                    return rank > 0.0 ? new IndexStatistics(page.getId(), lemma.getId(), rank) : null;
-                });
+    private IndexStatistics createIndexStatistics(String lemma, PageLemmas page, LemmaDictionary dictionary) {
+        int lemmaId = dictionary.getId(lemma);
+        if (lemmaId == LemmaDictionary.NOT_FOUND) {
+            return null;
+        }
+        float rank = calculateRank(page.getTitleLemmas(), page.getBodyLemmas(), lemma);
+        if (rank <= 0.0) {
+            return null;
+        }
+        int[] ordinals = page.getOrdinals().getOrDefault(lemma, new int[0]);
+        return new IndexStatistics(page.getPageId(), lemmaId, rank, PositionCodec.encodeOrdinals(ordinals));
     }
 
     private float calculateRank(Map<String, Integer> titleLemmas, Map<String, Integer> bodyLemmas, String lemma) {
@@ -0,0 +1,169 @@
+package searchengine.services.parsers;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.AppProp;
+import searchengine.services.dto.AnalyzedPage;
+import searchengine.services.dto.PageLemmas;
+import searchengine.services.dto.PageStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Потоковая индексация сайта: загрузка -> разбор и лемматизация -> запись пачками.
+ * Между стадиями стоят ограниченные очереди, поэтому загрузка ждёт,
+ * пока запись не догонит её, и в памяти одновременно находится
+ * не больше queueCapacity страниц на каждую очередь.
+ * Почти одинаковые страницы (по SimHash текста) не лемматизируются: индексируется
+ * только первая загруженная из них, остальные записываются без содержимого
+ * с адресом оригинала, чтобы повторный обход не принял их за новые.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndexingPipeline {
+    private static final PageStatistics END_OF_PAGES = new PageStatistics("", "", 0);
+    private static final AnalyzedPage END_OF_ANALYZED = new AnalyzedPage(END_OF_PAGES, PageLemmas.empty());
+
+    private final UrlParser urlParser;
+    private final PageAnalyzer pageAnalyzer;
+    private final AppProp appProp;
+
+    /**
+     * @param duplicates отпечатки уже сохранённых страниц сайта; пополняется страницами обхода
+     * @return число страниц, пропущенных как почти дубликаты
+     */
+    public int run(String url, CrawlProgress progress, NearDuplicateIndex duplicates,
+                   Consumer<List<AnalyzedPage>> writer) throws Exception {
+        AppProp.Pipeline settings = appProp.getPipeline();
+        int analyzerThreads = Math.max(1, settings.getAnalyzerThreads());
+        Run run = new Run(settings.getQueueCapacity(), settings.getBatchSize(), duplicates);
+
+        ExecutorService executor = Executors.newFixedThreadPool(analyzerThreads + 1);
+        try {
+            List<Future<?>> analyzers = new ArrayList<>();
+            for (int i = 0; i < analyzerThreads; i++) {
+                analyzers.add(executor.submit(run.guard(run::analyze)));
+            }
+            Future<?> persister = executor.submit(run.guard(() -> run.persist(writer)));
+
+            urlParser.compute(url, progress, page -> run.put(run.fetched, page));
+
+            for (int i = 0; i < analyzerThreads; i++) {
+                run.put(run.fetched, END_OF_PAGES);
+            }
+            for (Future<?> analyzer : analyzers) {
+                await(analyzer);
+            }
+            run.put(run.analyzed, END_OF_ANALYZED);
+            await(persister);
+        } finally {
+            executor.shutdownNow();
+        }
+        return run.suppressed.get();
+    }
+
+    private static void await(Future<?> future) throws Exception {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private class Run {
+        private final BlockingQueue<PageStatistics> fetched;
+        private final BlockingQueue<AnalyzedPage> analyzed;
+        private final int batchSize;
+        private final NearDuplicateIndex duplicates;
+        private final AtomicInteger suppressed = new AtomicInteger();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        Run(int queueCapacity, int batchSize, NearDuplicateIndex duplicates) {
+            this.fetched = new ArrayBlockingQueue<>(queueCapacity);
+            this.analyzed = new ArrayBlockingQueue<>(queueCapacity);
+            this.batchSize = Math.max(1, batchSize);
+            this.duplicates = duplicates;
+        }
+
+        void analyze() throws InterruptedException {
+            while (true) {
+                PageStatistics page = fetched.take();
+                if (page == END_OF_PAGES) {
+                    return;
+                }
+                AnalyzedPage result = pageAnalyzer.analyze(page, duplicates);
+                if (result.getDuplicateOf() != null) {
+                    suppressed.incrementAndGet();
+                }
+                put(analyzed, result);
+            }
+        }
+
+        void persist(Consumer<List<AnalyzedPage>> writer) throws InterruptedException {
+            List<AnalyzedPage> batch = new ArrayList<>(batchSize);
+            while (true) {
+                AnalyzedPage page = analyzed.take();
+                if (page == END_OF_ANALYZED) {
+                    if (!batch.isEmpty()) {
+                        writer.accept(batch);
+                    }
+                    return;
+                }
+                batch.add(page);
+                if (batch.size() >= batchSize) {
+                    writer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+
+        /**
+         * Кладёт элемент в очередь, ожидая свободного места.
+         * Если одна из стадий упала, ожидание прерывается, чтобы загрузка не зависла.
+         */
+        <T> void put(BlockingQueue<T> queue, T item) {
+            try {
+                while (!queue.offer(item, 1, TimeUnit.SECONDS)) {
+                    if (failure.get() != null) {
+                        throw new CancellationException("Индексация прервана: " + failure.get().getMessage());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Индексация остановлена");
+            }
+        }
+
+        Callable<Void> guard(Stage stage) {
+            return () -> {
+                try {
+                    stage.run();
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                    throw e;
+                }
+                return null;
+            };
+        }
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws Exception;
+    }
+}
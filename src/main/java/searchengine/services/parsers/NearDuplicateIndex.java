@@ -0,0 +1,102 @@
+package searchengine.services.parsers;
+
+import searchengine.config.AppProp;
+import searchengine.utilites.SimHash;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Отпечатки SimHash страниц сайта с поиском отпечатка
+ * на расстоянии Хэмминга не больше maxDistance.
+ * Заполняется страницами текущего обхода, а при продолжении обхода и повторном
+ * обходе - ещё и отпечатками страниц, сохранёнными в базе.
+ * Отпечаток делится на maxDistance + 1 блоков: если отпечатки различаются
+ * не больше чем в maxDistance битах, хотя бы один блок у них совпадает целиком.
+ * Поэтому для каждого блока есть таблица «значение блока -> отпечатки»,
+ * и сравниваются только отпечатки с совпавшим блоком, а не все страницы сайта.
+ */
+public class NearDuplicateIndex {
+    private final boolean enabled;
+    private final int minWords;
+    private final int maxDistance;
+    private final int[] shifts;
+    private final long[] masks;
+    private final List<Map<Long, List<Entry>>> tables;
+
+    public NearDuplicateIndex(AppProp.Deduplication settings) {
+        this(settings.isEnabled(), settings.getMinWords(), settings.getMaxDistance());
+    }
+
+    NearDuplicateIndex(boolean enabled, int minWords, int maxDistance) {
+        this.enabled = enabled;
+        this.minWords = minWords;
+        this.maxDistance = Math.max(0, Math.min(maxDistance, Long.SIZE - 1));
+        int blocks = this.maxDistance + 1;
+        this.shifts = new int[blocks];
+        this.masks = new long[blocks];
+        this.tables = new ArrayList<>(blocks);
+        int shift = 0;
+        for (int block = 0; block < blocks; block++) {
+            // Остаток от деления 64 бит на блоки достаётся первым блокам
+            int width = Long.SIZE / blocks + (block < Long.SIZE % blocks ? 1 : 0);
+            shifts[block] = shift;
+            masks[block] = width == Long.SIZE ? -1L : (1L << width) - 1;
+            tables.add(new HashMap<>());
+            shift += width;
+        }
+    }
+
+    /**
+     * Отпечаток текста или пустое значение, если поиск дубликатов выключен
+     * или в тексте меньше minWords слов.
+     */
+    public OptionalLong fingerprint(CharSequence text) {
+        return enabled ? SimHash.fingerprint(text, minWords) : OptionalLong.empty();
+    }
+
+    /**
+     * Ищет ранее добавленную страницу с другим адресом, похожую на эту.
+     * Если такой нет, добавляет страницу.
+     *
+     * @return адрес похожей страницы
+     */
+    public synchronized Optional<String> findOrAdd(long fingerprint, String url) {
+        for (int block = 0; block < tables.size(); block++) {
+            List<Entry> candidates = tables.get(block).get(key(fingerprint, block));
+            if (candidates == null) {
+                continue;
+            }
+            for (Entry candidate : candidates) {
+                // Прежний отпечаток изменившейся страницы не делает её дубликатом самой себя
+                if (SimHash.distance(candidate.fingerprint(), fingerprint) <= maxDistance
+                        && !candidate.url().equals(url)) {
+                    return Optional.of(candidate.url());
+                }
+            }
+        }
+        add(fingerprint, url);
+        return Optional.empty();
+    }
+
+    /**
+     * Добавляет отпечаток уже сохранённой страницы без поиска похожих.
+     */
+    public synchronized void add(long fingerprint, String url) {
+        Entry entry = new Entry(fingerprint, url);
+        for (int block = 0; block < tables.size(); block++) {
+            tables.get(block).computeIfAbsent(key(fingerprint, block), key -> new ArrayList<>(1)).add(entry);
+        }
+    }
+
+    private long key(long fingerprint, int block) {
+        return (fingerprint >>> shifts[block]) & masks[block];
+    }
+
+    private record Entry(long fingerprint, String url) {
+    }
+}
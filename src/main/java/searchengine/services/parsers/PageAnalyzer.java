@@ -0,0 +1,139 @@
+package searchengine.services.parsers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.stereotype.Component;
+import searchengine.services.dto.AnalyzedPage;
+import searchengine.services.dto.PageLemmas;
+import searchengine.services.dto.PageStatistics;
+import searchengine.utilites.CleanHtmlCode;
+import searchengine.utilites.Morphology;
+import searchengine.utilites.WordTokenizer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Разбирает HTML страницы один раз и считает леммы заголовка и тела.
+ * Результат используется и для подсчёта частоты лемм, и для построения индекса.
+ * Вместе с леммами сохраняются заголовок, текст тела и позиции лемм в нём,
+ * чтобы при поиске сниппеты строились без повторного разбора HTML,
+ * а также порядковые номера слов для фразового поиска.
+ * Слова нумеруются подряд, включая те, у которых нет лемм.
+ * Id страницы проставляется после её сохранения.
+ */
+@Slf4j
+@Component
+public class PageAnalyzer {
+
+    public PageLemmas analyze(String content) {
+        return analyze(extract(content));
+    }
+
+    /**
+     * Разбирает загруженную страницу, сверяя её текст с отпечатками в duplicates.
+     * Почти дубликат другой страницы не лемматизируется.
+     */
+    public AnalyzedPage analyze(PageStatistics page, NearDuplicateIndex duplicates) {
+        if (page.getCode() >= 400) {
+            return new AnalyzedPage(page, PageLemmas.empty());
+        }
+        PageText text = extract(page.getContent());
+        OptionalLong fingerprint = duplicates.fingerprint(text.body());
+        if (fingerprint.isEmpty()) {
+            return new AnalyzedPage(page, analyze(text));
+        }
+        Optional<String> original = duplicates.findOrAdd(fingerprint.getAsLong(), page.getUrl());
+        if (original.isPresent()) {
+            log.debug("Страница {} почти совпадает с {} и не индексируется", page.getUrl(), original.get());
+            return new AnalyzedPage(page, PageLemmas.empty(), original.get(), null);
+        }
+        return new AnalyzedPage(page, analyze(text), null, fingerprint.getAsLong());
+    }
+
+    /**
+     * Извлекает из HTML заголовок и текст тела без лемматизации.
+     */
+    public PageText extract(String content) {
+        Document document = Jsoup.parse(content);
+        return new PageText(CleanHtmlCode.clear(document, "title"), CleanHtmlCode.clear(document, "body"));
+    }
+
+    public PageLemmas analyze(PageText page) {
+        String title = page.title();
+        String text = page.body();
+
+        Map<String, Integer> titleLemmas = new HashMap<>();
+        Map<String, Positions> ordinals = new HashMap<>();
+        int[] ordinal = {0};
+        WordTokenizer.forEachWord(title, word -> {
+            for (String lemma : Morphology.getLemma(word)) {
+                if (!WordTokenizer.isWord(lemma)) {
+                    continue;
+                }
+                titleLemmas.merge(lemma, 1, Integer::sum);
+                ordinals.computeIfAbsent(lemma, l -> new Positions()).add(ordinal[0]);
+            }
+            ordinal[0]++;
+        });
+        // Пропуск в нумерации, чтобы фраза не склеивалась из конца заголовка и начала текста
+        ordinal[0]++;
+
+        Map<String, Integer> bodyLemmas = new HashMap<>();
+        Map<String, Positions> spans = new HashMap<>();
+        WordTokenizer.forEachWord(text, (word, start, end) -> {
+            for (String lemma : Morphology.getLemma(word)) {
+                if (!WordTokenizer.isWord(lemma)) {
+                    continue;
+                }
+                bodyLemmas.merge(lemma, 1, Integer::sum);
+                spans.computeIfAbsent(lemma, l -> new Positions()).add(start, end);
+                ordinals.computeIfAbsent(lemma, l -> new Positions()).add(ordinal[0]);
+            }
+            ordinal[0]++;
+        });
+
+        // Без учёта пропуска между заголовком и текстом
+        int wordCount = ordinal[0] - 1;
+        return new PageLemmas(0, titleLemmas, bodyLemmas, title, text, toArrays(spans), toArrays(ordinals), wordCount);
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, Positions> positions) {
+        Map<String, int[]> arrays = new HashMap<>(positions.size() * 2);
+        positions.forEach((lemma, p) -> arrays.put(lemma, p.toArray()));
+        return arrays;
+    }
+
+    private static class Positions {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int position) {
+            ensureCapacity(1);
+            values[size++] = position;
+        }
+
+        void add(int start, int end) {
+            ensureCapacity(2);
+            values[size++] = start;
+            values[size++] = end;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    public record PageText(String title, String body) {
+    }
+}
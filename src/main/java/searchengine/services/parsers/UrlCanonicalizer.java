@@ -0,0 +1,116 @@
+package searchengine.services.parsers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.AppProp;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Приводит адрес к каноническому виду, чтобы варианты одной страницы
+ * попадали в множество найденных адресов один раз и загружались один раз:
+ * <ul>
+ *     <li>схема и хост в нижнем регистре, порт по умолчанию и #фрагмент отброшены;</li>
+ *     <li>адреса сайта с www. и без, по http и https приводятся к схеме и хосту сайта из конфигурации;</li>
+ *     <li>сегменты «.» и «..» пути раскрыты, завершающий «/» убран;</li>
+ *     <li>параметры из stripParameters (шаблон «utm_*» - по префиксу) удалены, остальные отсортированы.</li>
+ * </ul>
+ * Адреса, которые не разбираются как URI, возвращаются без изменений.
+ */
+@Component
+@RequiredArgsConstructor
+public class UrlCanonicalizer {
+    private static final String WWW = "www.";
+
+    private final AppProp appProp;
+
+    public String canonicalize(String url, String siteUrl) {
+        AppProp.Canonicalization settings = appProp.getCanonicalization();
+        if (!settings.isEnabled()) {
+            return url;
+        }
+        URI uri;
+        URI site;
+        try {
+            uri = new URI(url).normalize();
+            site = new URI(siteUrl);
+        } catch (URISyntaxException e) {
+            return url;
+        }
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            return url;
+        }
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        String host = uri.getHost().toLowerCase(Locale.ROOT);
+        int port = withoutDefault(scheme, uri.getPort());
+        if (site.getScheme() != null && site.getHost() != null) {
+            String siteScheme = site.getScheme().toLowerCase(Locale.ROOT);
+            String siteHost = site.getHost().toLowerCase(Locale.ROOT);
+            int sitePort = withoutDefault(siteScheme, site.getPort());
+            if (isSameHost(host, siteHost, settings.isMergeWww()) && (port == -1 || port == sitePort)) {
+                scheme = siteScheme;
+                host = siteHost;
+                port = sitePort;
+            }
+        }
+
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        if (settings.isRemoveTrailingSlash() && path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        String query = canonicalQuery(uri.getRawQuery(), settings);
+
+        String canonical = scheme + "://" + host + (port == -1 ? "" : ":" + port) + path
+                + (query.isEmpty() ? "" : "?" + query);
+        // Корень сайта записывается так же, как в конфигурации, со слэшем или без
+        if (canonical.equals(siteUrl + "/") || (canonical + "/").equals(siteUrl)) {
+            return siteUrl;
+        }
+        return canonical;
+    }
+
+    private static String canonicalQuery(String rawQuery, AppProp.Canonicalization settings) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        List<String> parameters = new ArrayList<>();
+        for (String parameter : rawQuery.split("&")) {
+            if (!parameter.isEmpty() && !isStripped(parameter, settings.getStripParameters())) {
+                parameters.add(parameter);
+            }
+        }
+        if (settings.isSortParameters()) {
+            Collections.sort(parameters);
+        }
+        return String.join("&", parameters);
+    }
+
+    private static boolean isStripped(String parameter, List<String> rules) {
+        int equals = parameter.indexOf('=');
+        String name = (equals < 0 ? parameter : parameter.substring(0, equals)).toLowerCase(Locale.ROOT);
+        for (String rule : rules) {
+            String lower = rule.toLowerCase(Locale.ROOT);
+            if (lower.endsWith("*") ? name.startsWith(lower.substring(0, lower.length() - 1)) : name.equals(lower)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSameHost(String host, String siteHost, boolean mergeWww) {
+        return host.equals(siteHost) || mergeWww && withoutWww(host).equals(withoutWww(siteHost));
+    }
+
+    private static String withoutWww(String host) {
+        return host.startsWith(WWW) ? host.substring(WWW.length()) : host;
+    }
+
+    private static int withoutDefault(String scheme, int port) {
+        return (scheme.equals("http") && port == 80) || (scheme.equals("https") && port == 443) ? -1 : port;
+    }
+}
@@ -2,76 +2,287 @@ package searchengine.services.parsers;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.springframework.stereotype.Component;
 import searchengine.config.AppProp;
 import searchengine.services.dto.PageStatistics;
+import searchengine.services.dto.PageVersion;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class UrlParser {
+    private static final int HTTP_NOT_MODIFIED = 304;
+
     private final AppProp appProp;
+    private final HostScheduler hostScheduler;
+    private final UrlCanonicalizer urlCanonicalizer;
 
-    public List<PageStatistics> compute(String address) {
+    /**
+     * Обходит сайт и передаёт каждую загруженную страницу в consumer.
+     * Страницы не накапливаются в памяти: consumer может блокировать обход,
+     * пока следующая стадия не освободится.
+     * <p>
+     * Когда и сколько запросов отправить, решает HostScheduler; сами запросы
+     * выполняются в пуле из fetchThreads потоков, разбор HTML и поиск ссылок -
+     * в ограниченном пуле из parseThreads потоков. Когда пул разбора переполнен,
+     * разбор выполняет сам загружающий поток.
+     * <p>
+     * Найденные адреса отмечаются в progress. Если он восстановлен из контрольной точки,
+     * уже записанные в базу страницы не загружаются, а незаписанные адреса загружаются снова.
+     */
+    public void compute(String address, CrawlProgress progress, Consumer<PageStatistics> consumer) {
         log.info("Start compute {}", address);
-        List<PageStatistics> pageStatisticsList = Collections.synchronizedList(new ArrayList<>());
-        List<String> addressList = Collections.synchronizedList(new ArrayList<>());
-        handler(address, pageStatisticsList, addressList);
-        return pageStatisticsList;
+        new Crawl(address, List.of(), url -> null, progress, consumer, appProp.getCrawler()).run();
+    }
+
+    /**
+     * Повторный обход уже проиндексированного сайта.
+     * Кроме ссылок со страниц обходятся все известные адреса knownUrls.
+     * Для страниц, у которых есть сохранённая версия, отправляется условный запрос
+     * с If-None-Match и If-Modified-Since. Если сервер ответил 304 или хэш
+     * содержимого совпал с сохранённым, в consumer уходит страница с modified = false:
+     * ссылки на ней не ищутся, они те же, что и в прошлый раз, и уже есть среди knownUrls.
+     * Если загрузить известную страницу не удалось, она тоже считается неизменившейся,
+     * чтобы сбой сети не стёр её из индекса.
+     */
+    public void recrawl(String address, Collection<String> knownUrls, Function<String, PageVersion> versions,
+                        Consumer<PageStatistics> consumer) {
+        log.info("Start recrawl {}, known pages: {}", address, knownUrls.size());
+        new Crawl(address, knownUrls, versions, CrawlProgress.start(), consumer, appProp.getCrawler()).run();
     }
 
-    private void handler(String address, List<PageStatistics> pageStatisticsList, List<String> addressList) {
-        List<String> taskList = new ArrayList<>();
+    private class Crawl {
+        private final String address;
+        private final Collection<String> seeds;
+        private final Function<String, PageVersion> versions;
+        private final CrawlProgress progress;
+        private final Consumer<PageStatistics> consumer;
+        private final CrawlFrontier frontier;
+        private final ExecutorService fetchExecutor;
+        private final ThreadPoolExecutor parseExecutor;
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        private final AtomicInteger rewrittenLinks = new AtomicInteger();
+        private final AtomicInteger canonicalAliases = new AtomicInteger();
+
+        Crawl(String address, Collection<String> seeds, Function<String, PageVersion> versions,
+              CrawlProgress progress, Consumer<PageStatistics> consumer, AppProp.Crawler settings) {
+            int parseThreads = Math.max(1, settings.getParseThreads());
+            this.address = address;
+            this.seeds = seeds;
+            this.versions = versions;
+            this.progress = progress;
+            this.consumer = consumer;
+            this.frontier = new CrawlFrontier(VisitedUrlSet.create(settings), this::schedule);
+            this.fetchExecutor = Executors.newFixedThreadPool(Math.max(1, settings.getFetchThreads()));
+            this.parseExecutor = new ThreadPoolExecutor(parseThreads, parseThreads,
+                    0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(parseThreads * 4),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+
+        void run() {
+            progress.getIndexed().forEach(frontier::markVisited);
+            frontier.hold();
+            frontier.offer(address);
+            seeds.forEach(frontier::offer);
+            progress.getFrontier().forEach(frontier::offer);
+            frontier.done();
+            try {
+                frontier.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Обход сайта " + address + " остановлен");
+            } finally {
+                frontier.close();
+                fetchExecutor.shutdownNow();
+                parseExecutor.shutdownNow();
+                VisitedUrlSet visited = frontier.getVisited();
+                log.info("Обход {}: найдено {} адресов, ~{} байт памяти на адрес",
+                        address, visited.size(), Math.round(visited.bytesPerUrl()));
+                log.info("Обход {}: ссылок приведено к каноническому виду {}, страниц с другим rel=canonical {}",
+                        address, rewrittenLinks.get(), canonicalAliases.get());
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+        }
+
+        private void schedule(String url) {
+            progress.discovered(url);
+            hostScheduler.submit(url, fetchExecutor, frontier::isClosed, () -> fetch(url));
+        }
+
+        private void fetch(String url) {
+            if (frontier.isClosed()) {
+                frontier.done();
+                return;
+            }
+            PageVersion version = versions.apply(url);
+            Optional<Connection.Response> response = getConnect(url, version);
+            try {
+                parseExecutor.execute(() -> parse(url, version, response));
+            } catch (RejectedExecutionException e) {
+                frontier.done();
+            }
+        }
 
-        Optional<Document> document = getConnect(address);
-        if (document.isEmpty()) {
-            pageStatisticsList.add(new PageStatistics(address, "", 500));
-            return;
+        private void parse(String url, PageVersion version, Optional<Connection.Response> response) {
+            try {
+                if (!frontier.isClosed()) {
+                    handler(url, version, response);
+                }
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+                frontier.close();
+            } finally {
+                frontier.done();
+            }
         }
 
-        String html = document.get().outerHtml();
-        int statusCode = document.get().connection().response().statusCode();
-        pageStatisticsList.add(new PageStatistics(address, html, statusCode));
+        private void handler(String url, PageVersion version, Optional<Connection.Response> response) {
+            if (version != null && response.isPresent() && response.get().statusCode() == HTTP_NOT_MODIFIED) {
+                // Ответ 304 может не повторять валидаторы, тогда остаются сохранённые
+                Connection.Response notModified = response.get();
+                consumer.accept(PageStatistics.notModified(url,
+                        Optional.ofNullable(notModified.header("ETag")).orElse(version.getEtag()),
+                        Optional.ofNullable(notModified.header("Last-Modified")).orElse(version.getLastModified())));
+                return;
+            }
+            Optional<Document> document = response.flatMap(UrlParser.this::parseDocument);
+            if (document.isEmpty()) {
+                consumer.accept(version == null ? new PageStatistics(url, "", 500)
+                        : PageStatistics.notModified(url, version.getEtag(), version.getLastModified()));
+                return;
+            }
 
-        Elements elements = document.get().select("body a");
-        elements.parallelStream()
-                .forEach(el -> handleElement(el, taskList, addressList));
-        taskList.parallelStream()
-                .forEach(tl -> handler(tl, pageStatisticsList, addressList));
+            PageStatistics page = toStatistics(url, response.get(), document.get());
+            if (version != null && page.getContentHash().equals(version.getContentHash())) {
+                consumer.accept(PageStatistics.notModified(url, page.getEtag(), page.getLastModified()));
+                return;
+            }
+            // Сохранённые страницы остаются под своими адресами, канонический адрес учитывается только у новых
+            Optional<String> canonical = version == null ? relCanonical(document.get()) : Optional.empty();
+            if (canonical.isPresent() && !canonical.get().equals(url)) {
+                canonicalAliases.incrementAndGet();
+                progress.skipped(url);
+                if (!frontier.markVisited(canonical.get())) {
+                    // Страница уже загружена или ждёт загрузки под каноническим адресом
+                    return;
+                }
+                progress.discovered(canonical.get());
+                page = page.withUrl(canonical.get());
+            }
+            // Ссылки добавляются до передачи страницы дальше: к моменту её записи в базу
+            // они уже среди найденных и попадут в контрольную точку
+            for (Element el : document.get().select("body a")) {
+                handleElement(el);
+            }
+            consumer.accept(page);
+        }
+
+        private void handleElement(Element el) {
+            String link = el.attr("abs:href");
+            String canonical = urlCanonicalizer.canonicalize(link, address);
+            if (!canonical.equals(link)) {
+                rewrittenLinks.incrementAndGet();
+            }
+            if (isCorrect(canonical, address)) {
+                frontier.offer(canonical);
+            }
+        }
+
+        private Optional<String> relCanonical(Document document) {
+            if (!appProp.getCanonicalization().isUseRelCanonical()) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(document.selectFirst("link[rel=canonical]"))
+                    .map(link -> link.attr("abs:href"))
+                    .filter(href -> !href.isEmpty())
+                    .map(href -> urlCanonicalizer.canonicalize(href, address))
+                    .filter(href -> href.equals(address) || isCorrect(href, address));
+        }
+    }
+
+    /**
+     * Загружает одну страницу без обхода ссылок.
+     */
+    public PageStatistics fetchPage(String url) {
+        Optional<Connection.Response> response = getConnect(url, null);
+        return response.flatMap(this::parseDocument)
+                .map(document -> toStatistics(url, response.get(), document))
+                .orElseGet(() -> new PageStatistics(url, "", 500));
     }
 
-    private Optional<Document> getConnect(String url) {
+    private static PageStatistics toStatistics(String url, Connection.Response response, Document document) {
+        String html = document.outerHtml();
+        return new PageStatistics(url, html, response.statusCode(),
+                response.header("ETag"), response.header("Last-Modified"), contentHash(html), true);
+    }
+
+    private static String contentHash(String html) {
         try {
-            Thread.sleep(150);
-            return Optional.of(Jsoup.connect(url)
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(html.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Загружает страницу. Если известна её сохранённая версия, запрос условный:
+     * сервер может ответить 304 без тела.
+     */
+    private Optional<Connection.Response> getConnect(String url, PageVersion version) {
+        try {
+            Connection connection = Jsoup.connect(url)
                     .userAgent(appProp.getUserAgent())
-                    .referrer(appProp.getReferrer())
-                    .get());
+                    .referrer(appProp.getReferrer());
+            if (version != null && version.getEtag() != null) {
+                connection.header("If-None-Match", version.getEtag());
+            }
+            if (version != null && version.getLastModified() != null) {
+                connection.header("If-Modified-Since", version.getLastModified());
+            }
+            return Optional.of(connection.execute());
         } catch (Exception e) {
             log.debug("Ошибка подключения к сайту: {}", url, e);
         }
         return Optional.empty();
     }
 
-    private void handleElement(Element el, List<String> taskList, List<String> addressList) {
-        String link = el.attr("abs:href");
-        if (isCorrect(el, addressList, link)) {
-            taskList.add(link);
-            addressList.add(link);
+    private Optional<Document> parseDocument(Connection.Response response) {
+        try {
+            return Optional.of(response.parse());
+        } catch (Exception e) {
+            log.debug("Ошибка разбора страницы: {}", response.url(), e);
         }
+        return Optional.empty();
     }
 
-    private static boolean isCorrect(Element el, List<String> addressList, String link) {
-        return link.startsWith(el.baseUri()) && !link.equals(el.baseUri()) && !link.contains("#")
-                && !link.matches(".*\\.(pdf|jpg|png|JPG)$") && !addressList.contains(link);
+    private static boolean isCorrect(String link, String address) {
+        return link.startsWith(address) && !link.equals(address) && !link.contains("#")
+                && !link.matches(".*\\.(pdf|jpg|png|JPG)$");
     }
 }
@@ -0,0 +1,30 @@
+package searchengine.services.parsers;
+
+import searchengine.config.AppProp;
+
+/**
+ * Множество уже найденных адресов сайта.
+ * Реализации потокобезопасны и не используют блокировок.
+ */
+interface VisitedUrlSet {
+
+    /**
+     * Добавляет адрес и возвращает true, если его ещё не было.
+     */
+    boolean add(String url);
+
+    long size();
+
+    /**
+     * Приблизительный объём памяти на один адрес в байтах.
+     */
+    double bytesPerUrl();
+
+    static VisitedUrlSet create(AppProp.Crawler settings) {
+        if (settings.getBloomFilterExpectedUrls() > 0) {
+            return new BloomVisitedUrlSet(settings.getBloomFilterExpectedUrls(),
+                    settings.getBloomFilterFalsePositiveRate());
+        }
+        return new HashVisitedUrlSet();
+    }
+}
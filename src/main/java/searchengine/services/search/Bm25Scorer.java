@@ -0,0 +1,37 @@
+package searchengine.services.search;
+
+import searchengine.services.index.DocumentStatistics;
+import searchengine.services.index.PostingList;
+
+/**
+ * Релевантность BM25.
+ * Частотой леммы на странице служит её ранг (вхождения в заголовок и тело с весами),
+ * документная частота - длина списка страниц леммы, длины страниц и средняя длина
+ * посчитаны при индексации. Обращений к базе при подсчёте нет.
+ */
+public class Bm25Scorer implements Scorer {
+    private final DocumentStatistics documents;
+    private final float k1;
+    private final float b;
+
+    public Bm25Scorer(DocumentStatistics documents, float k1, float b) {
+        this.documents = documents;
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    @Override
+    public TermScorer term(PostingList postings) {
+        int pageCount = Math.max(documents.getPageCount(), postings.size());
+        float idf = (float) Math.log(1 + (pageCount - postings.size() + 0.5) / (postings.size() + 0.5));
+        float averageLength = Math.max(1, documents.getAverageLength());
+        float idfK1 = idf * (k1 + 1);
+        float lengthNorm = k1 * b / averageLength;
+        float constantNorm = k1 * (1 - b);
+        return position -> {
+            float frequency = postings.rank(position);
+            int length = documents.length(postings.pageId(position));
+            return idfK1 * frequency / (frequency + constantNorm + lengthNorm * length);
+        };
+    }
+}
@@ -0,0 +1,200 @@
+package searchengine.services.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.AppProp;
+import searchengine.persistence.repository.IndexRepository;
+import searchengine.services.index.PositionCodec;
+import searchengine.services.index.PostingList;
+import searchengine.services.index.SiteIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Проверка фраз и операторов близости по порядковым номерам слов.
+ * Номера хранятся в таблице index отдельно от рангов и читаются только
+ * для страниц-кандидатов запросов с кавычками, поэтому обычные запросы их не касаются.
+ */
+@Component
+@RequiredArgsConstructor
+public class PhraseEvaluator {
+    private static final int PAGE_CHUNK = 1000;
+
+    private final IndexRepository indexRepository;
+    private final AppProp appProp;
+
+    /**
+     * Отбрасывает кандидатов без точных фраз запроса, повышает релевантность
+     * кандидатов, где слова фраз с оператором близости стоят рядом, и отбирает limit лучших.
+     *
+     * @param candidates все страницы, на которых есть все слова запроса, в любом порядке:
+     *                   фраза может найтись на любой из них, поэтому отбор до проверки
+     *                   ограничил бы число найденных и оставил бы пустыми дальние страницы выдачи
+     * @param after      курсор последнего показанного результата или null; сравнивается
+     *                   с релевантностью после учёта близости
+     */
+    public RankedPages evaluate(RankedPages candidates, SearchQuery query, SiteIndex siteIndex, int limit,
+                                SearchCursor after) {
+        List<int[][]> phraseLemmaIds = new ArrayList<>();
+        Set<Integer> lemmaIds = new HashSet<>();
+        boolean filtering = false;
+        for (SearchQuery.Phrase phrase : query.getPhrases()) {
+            int[][] tokenLemmaIds = new int[phrase.tokens().size()][];
+            for (int t = 0; t < tokenLemmaIds.length; t++) {
+                tokenLemmaIds[t] = phrase.tokens().get(t).lemmas().stream()
+                        .map(siteIndex::postings)
+                        .filter(Objects::nonNull)
+                        .mapToInt(PostingList::getLemmaId)
+                        .toArray();
+                if (tokenLemmaIds[t].length == 0 && phrase.isExact()) {
+                    // Слова фразы нет на сайте - фраза не найдётся ни на одной странице
+                    return RankedPages.empty();
+                }
+                Arrays.stream(tokenLemmaIds[t]).forEach(lemmaIds::add);
+            }
+            filtering |= phrase.isExact();
+            phraseLemmaIds.add(tokenLemmaIds);
+        }
+
+        double boost = appProp.getSearch().getProximityBoost();
+        TopK top = new TopK(Math.min(limit, candidates.size()));
+        int matched = 0;
+        // Номера слов читаются порциями: в памяти держатся позиции только одной порции кандидатов
+        for (int from = 0; from < candidates.size(); from += PAGE_CHUNK) {
+            int to = Math.min(from + PAGE_CHUNK, candidates.size());
+            Map<Integer, Map<Integer, byte[]>> positions = loadPositions(candidates, from, to, lemmaIds);
+            candidates:
+            for (int i = from; i < to; i++) {
+                Map<Integer, byte[]> pagePositions = positions.getOrDefault(candidates.pageId(i), Map.of());
+                float score = candidates.score(i);
+                for (int p = 0; p < phraseLemmaIds.size(); p++) {
+                    SearchQuery.Phrase phrase = query.getPhrases().get(p);
+                    int[][] ordinals = ordinals(phraseLemmaIds.get(p), pagePositions);
+                    if (phrase.isExact()) {
+                        if (!containsPhrase(phrase, ordinals)) {
+                            continue candidates;
+                        }
+                    } else {
+                        score *= proximityBoost(phrase, ordinals, boost);
+                    }
+                }
+                matched++;
+                if (after == null || after.isBefore(score, candidates.pageId(i))) {
+                    top.offer(candidates.pageId(i), score);
+                }
+            }
+        }
+        // Без точных фраз кандидаты не отбрасываются, и общее число найденных не меняется
+        return top.drain(filtering ? matched : candidates.getTotalCount());
+    }
+
+    private Map<Integer, Map<Integer, byte[]>> loadPositions(RankedPages candidates, int from, int to,
+                                                             Set<Integer> lemmaIds) {
+        Map<Integer, Map<Integer, byte[]>> positions = new HashMap<>();
+        if (lemmaIds.isEmpty()) {
+            return positions;
+        }
+        List<Integer> pageIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            pageIds.add(candidates.pageId(i));
+        }
+        for (IndexRepository.PositionRow row : indexRepository.findPositions(lemmaIds, pageIds)) {
+            positions.computeIfAbsent(row.getPageId(), id -> new HashMap<>())
+                    .put(row.getLemmaId(), row.getPositions());
+        }
+        return positions;
+    }
+
+    /**
+     * Номера слов страницы для каждого слова фразы: объединение номеров всех его лемм.
+     */
+    private static int[][] ordinals(int[][] tokenLemmaIds, Map<Integer, byte[]> pagePositions) {
+        int[][] ordinals = new int[tokenLemmaIds.length][];
+        for (int t = 0; t < tokenLemmaIds.length; t++) {
+            int[] merged = new int[0];
+            for (int lemmaId : tokenLemmaIds[t]) {
+                int[] decoded = PositionCodec.decodeOrdinals(pagePositions.get(lemmaId));
+                merged = merged.length == 0 ? decoded : union(merged, decoded);
+            }
+            ordinals[t] = merged;
+        }
+        return ordinals;
+    }
+
+    static boolean containsPhrase(SearchQuery.Phrase phrase, int[][] ordinals) {
+        int firstOrdinal = phrase.tokens().get(0).ordinal();
+        for (int start : ordinals[0]) {
+            boolean found = true;
+            for (int t = 1; t < ordinals.length && found; t++) {
+                int expected = start + phrase.tokens().get(t).ordinal() - firstOrdinal;
+                found = Arrays.binarySearch(ordinals[t], expected) >= 0;
+            }
+            if (found) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Множитель релевантности для фразы с оператором близости: больше 1, если найденные
+     * слова фразы стоят не дальше slop лишних слов друг от друга, и тем больше, чем они ближе.
+     */
+    static float proximityBoost(SearchQuery.Phrase phrase, int[][] ordinals, double boost) {
+        int span = minimalSpan(ordinals);
+        int words = (int) Arrays.stream(ordinals).filter(o -> o.length > 0).count();
+        if (words < 2 || span - (words - 1) > phrase.slop()) {
+            return 1F;
+        }
+        return (float) (1 + boost * Math.min(1.0, (words - 1) / (double) Math.max(1, span)));
+    }
+
+    /**
+     * Наименьшее расстояние между первым и последним словом среди окон,
+     * содержащих хотя бы одно вхождение каждого найденного слова фразы.
+     */
+    static int minimalSpan(int[][] ordinals) {
+        int[][] present = Arrays.stream(ordinals).filter(o -> o.length > 0).toArray(int[][]::new);
+        if (present.length < 2) {
+            return Integer.MAX_VALUE;
+        }
+        int[] cursors = new int[present.length];
+        int best = Integer.MAX_VALUE;
+        while (true) {
+            int min = 0;
+            int max = Integer.MIN_VALUE;
+            for (int t = 0; t < present.length; t++) {
+                int value = present[t][cursors[t]];
+                if (value < present[min][cursors[min]]) {
+                    min = t;
+                }
+                max = Math.max(max, value);
+            }
+            best = Math.min(best, max - present[min][cursors[min]]);
+            if (++cursors[min] == present[min].length) {
+                return best;
+            }
+        }
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length || j < b.length) {
+            int next = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+            if (size == 0 || result[size - 1] != next) {
+                result[size++] = next;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,14 @@
+package searchengine.services.search;
+
+import searchengine.services.index.PostingList;
+
+/**
+ * Релевантность - сумма рангов лемм запроса на странице.
+ */
+public class RankSumScorer implements Scorer {
+
+    @Override
+    public TermScorer term(PostingList postings) {
+        return postings::rank;
+    }
+}
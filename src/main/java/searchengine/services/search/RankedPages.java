@@ -0,0 +1,29 @@
+package searchengine.services.search;
+
+import lombok.Value;
+
+/**
+ * Отобранные страницы по убыванию релевантности и общее число найденных страниц.
+ */
+@Value
+public class RankedPages {
+    int totalCount;
+    int[] pageIds;
+    float[] scores;
+
+    public static RankedPages empty() {
+        return new RankedPages(0, new int[0], new float[0]);
+    }
+
+    public int size() {
+        return pageIds.length;
+    }
+
+    public int pageId(int position) {
+        return pageIds[position];
+    }
+
+    public float score(int position) {
+        return scores[position];
+    }
+}
@@ -0,0 +1,160 @@
+package searchengine.services.search;
+
+import org.springframework.stereotype.Component;
+import searchengine.services.index.PostingList;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ранжирование страниц по спискам лемм запроса, сгруппированным по словам.
+ * В результат попадают страницы, на которых есть каждое слово запроса хотя бы
+ * в одной из его нормальных форм; релевантность страницы - сумма вкладов
+ * найденных на ней лемм по модели Scorer.
+ * <p>
+ * Кандидаты берутся из самого редкого слова, остальные слова проверяются
+ * от редких к частым. Курсоры списков только движутся вперёд поиском галопом,
+ * а при несовпадении кандидат перескакивает сразу к следующей странице проверенного слова,
+ * поэтому длинные списки почти не просматриваются целиком.
+ * В памяти держатся только limit лучших страниц: при выдаче с курсором
+ * страницы до курсора в отбор не попадают, но учитываются в общем числе найденных.
+ */
+@Component
+public class RankingEngine {
+
+    public RankedPages rank(List<List<PostingList>> words, int limit, Scorer scorer) {
+        return rank(words, limit, scorer, null);
+    }
+
+    /**
+     * @param words списки страниц лемм каждого слова запроса
+     * @param after курсор последнего показанного результата или null
+     */
+    public RankedPages rank(List<List<PostingList>> words, int limit, Scorer scorer, SearchCursor after) {
+        if (words.isEmpty()) {
+            return RankedPages.empty();
+        }
+        Word[] ordered = words.stream()
+                .map(lists -> new Word(lists, scorer))
+                .sorted(Comparator.comparingInt(Word::size))
+                .toArray(Word[]::new);
+
+        TopK top = new TopK(Math.min(limit, ordered[0].size()));
+        int matched = 0;
+        int target = ordered[0].advance(0);
+        candidates:
+        while (target != Word.END) {
+            int pageId = target;
+            for (int j = 1; j < ordered.length; j++) {
+                int next = ordered[j].advance(pageId);
+                if (next != pageId) {
+                    target = next == Word.END ? Word.END : ordered[0].advance(next);
+                    continue candidates;
+                }
+            }
+            float score = 0;
+            for (Word word : ordered) {
+                score += word.score(pageId);
+            }
+            matched++;
+            if (after == null || after.isBefore(score, pageId)) {
+                top.offer(pageId, score);
+            }
+            target = pageId == Integer.MAX_VALUE ? Word.END : ordered[0].advance(pageId + 1);
+        }
+        return top.drain(matched);
+    }
+
+    /**
+     * Слияние результатов, отсортированных по убыванию релевантности, в общие limit лучших.
+     * Страницы разных сайтов не пересекаются, поэтому общее число найденных - сумма.
+     * Порядок тот же, что у TopK и SearchCursor: при равной релевантности раньше страница с меньшим id,
+     * иначе курсор на стыке сайтов пропустил бы страницы с той же релевантностью.
+     */
+    public RankedPages merge(List<RankedPages> shards, int limit) {
+        Comparator<int[]> byScore = (a, b) -> Float.compare(shards.get(b[0]).score(b[1]), shards.get(a[0]).score(a[1]));
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, shards.size()),
+                byScore.thenComparingInt(head -> shards.get(head[0]).pageId(head[1])));
+        int totalCount = 0;
+        int available = 0;
+        for (int i = 0; i < shards.size(); i++) {
+            totalCount += shards.get(i).getTotalCount();
+            available += shards.get(i).size();
+            if (shards.get(i).size() > 0) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+
+        int size = Math.min(limit, available);
+        int[] pageIds = new int[size];
+        float[] scores = new float[size];
+        for (int n = 0; n < size; n++) {
+            int[] head = heads.poll();
+            RankedPages shard = shards.get(head[0]);
+            pageIds[n] = shard.pageId(head[1]);
+            scores[n] = shard.score(head[1]);
+            if (++head[1] < shard.size()) {
+                heads.add(head);
+            }
+        }
+        return new RankedPages(totalCount, pageIds, scores);
+    }
+
+    /**
+     * Слово запроса: объединение списков его лемм. Курсор у каждого списка свой.
+     */
+    private static final class Word {
+        static final int END = -1;
+
+        private final PostingList[] lists;
+        private final Scorer.TermScorer[] terms;
+        private final int[] cursors;
+        private final int size;
+
+        Word(List<PostingList> lists, Scorer scorer) {
+            this.lists = lists.toArray(PostingList[]::new);
+            this.terms = new Scorer.TermScorer[this.lists.length];
+            this.cursors = new int[this.lists.length];
+            int total = 0;
+            for (int j = 0; j < this.lists.length; j++) {
+                terms[j] = scorer.term(this.lists[j]);
+                total += this.lists[j].size();
+            }
+            this.size = total;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Сдвигает курсоры к первой странице с id не меньше pageId хотя бы в одном списке.
+         *
+         * @return id этой страницы или END, если списки кончились
+         */
+        int advance(int pageId) {
+            int next = END;
+            for (int j = 0; j < lists.length; j++) {
+                cursors[j] = lists[j].seek(cursors[j], pageId);
+                if (cursors[j] < lists[j].size() && (next == END || lists[j].pageId(cursors[j]) < next)) {
+                    next = lists[j].pageId(cursors[j]);
+                }
+            }
+            return next;
+        }
+
+        /**
+         * Сумма вкладов лемм слова, найденных на странице, к которой курсоры уже сдвинуты.
+         */
+        float score(int pageId) {
+            float score = 0;
+            for (int j = 0; j < lists.length; j++) {
+                if (cursors[j] < lists[j].size() && lists[j].pageId(cursors[j]) == pageId) {
+                    score += terms[j].score(cursors[j]);
+                }
+            }
+            return score;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package searchengine.services.search;
+
+import searchengine.services.index.PostingList;
+
+/**
+ * Модель релевантности сайта.
+ * Для каждой леммы запроса один раз готовится TermScorer,
+ * после чего вклад леммы в релевантность страницы считается по позиции в её списке.
+ */
+@FunctionalInterface
+public interface Scorer {
+
+    TermScorer term(PostingList postings);
+
+    @FunctionalInterface
+    interface TermScorer {
+        float score(int position);
+    }
+}
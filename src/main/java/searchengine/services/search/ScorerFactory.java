@@ -0,0 +1,25 @@
+package searchengine.services.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.AppProp;
+import searchengine.services.index.SiteIndex;
+
+/**
+ * Выбирает модель релевантности по настройке app.search.scorer.
+ */
+@Component
+@RequiredArgsConstructor
+public class ScorerFactory {
+    private static final Scorer RANK_SUM = new RankSumScorer();
+
+    private final AppProp appProp;
+
+    public Scorer forSite(SiteIndex siteIndex) {
+        AppProp.Search settings = appProp.getSearch();
+        return switch (settings.getScorer()) {
+            case RANK -> RANK_SUM;
+            case BM25 -> new Bm25Scorer(siteIndex.getDocuments(), settings.getBm25K1(), settings.getBm25B());
+        };
+    }
+}
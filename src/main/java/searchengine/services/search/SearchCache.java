@@ -0,0 +1,96 @@
+package searchengine.services.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.stereotype.Component;
+import searchengine.config.AppProp;
+import searchengine.services.dto.SearchCacheStatistics;
+import searchengine.services.dto.SearchResults;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов поиска.
+ * Ключ - разобранный запрос (отсортированный набор лемм и фразы), фильтр по сайту, порция результатов
+ * (смещение или курсор и размер)
+ * и поколения индексов сайтов, по которым шёл поиск. После переиндексации сайта
+ * его поколение растёт, старые ключи больше не совпадают и вытесняются как неиспользуемые.
+ * <p>
+ * Размер ограничен и числом записей, и оценкой занимаемой памяти: вес записи -
+ * её примерный размер в байтах, но не меньше maxBytes / maxEntries.
+ */
+@Component
+public class SearchCache {
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int RESULT_OVERHEAD = 96;
+
+    private final Cache<Key, SearchResults> cache;
+    private final int minWeight;
+
+    public SearchCache(AppProp appProp) {
+        AppProp.SearchCache settings = appProp.getSearchCache();
+        long maxBytes = Math.max(1, settings.getMaxBytes());
+        this.minWeight = (int) Math.min(Integer.MAX_VALUE, maxBytes / Math.max(1, settings.getMaxEntries()));
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Key key, SearchResults results) -> Math.max(minWeight, estimateSize(key, results)))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Возвращает результат из кэша или вычисляет его.
+     * В кэш попадают только успешные и полные результаты.
+     */
+    public SearchResults get(Key key, Supplier<SearchResults> search) {
+        SearchResults cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        SearchResults results = search.get();
+        if (results.isResult() && !results.isPartial()) {
+            cache.put(key, results);
+        }
+        return results;
+    }
+
+    public SearchCacheStatistics getStatistics() {
+        CacheStats stats = cache.stats();
+        return SearchCacheStatistics.builder()
+                .entries(cache.estimatedSize())
+                .estimatedBytes(cache.policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0L))
+                        .orElse(0L))
+                .hits(stats.hitCount())
+                .misses(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictions(stats.evictionCount())
+                .build();
+    }
+
+    private static int estimateSize(Key key, SearchResults results) {
+        long size = ENTRY_OVERHEAD;
+        for (String lemma : key.query().getLemmas()) {
+            size += 2L * lemma.length();
+        }
+        for (SearchResults.SearchStatistics data : results.getData()) {
+            size += RESULT_OVERHEAD + 2L * (length(data.getSite()) + length(data.getSiteName())
+                    + length(data.getUri()) + length(data.getTitle()) + length(data.getSnippet()));
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    /**
+     * @param siteId      сайт, по которому ищут, или 0 для поиска по всем сайтам
+     * @param generations поколения индексов сайтов, участвующих в поиске
+     */
+    public record Key(SearchQuery query, int siteId, int offset, int limit, SearchCursor after,
+                      Map<Integer, Long> generations) {
+    }
+}
@@ -0,0 +1,35 @@
+package searchengine.services.search;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Позиция последнего показанного результата для постраничного вывода «после него».
+ * Результаты упорядочены по убыванию релевантности, при равной - по возрастанию id страницы,
+ * поэтому пара (релевантность, id) однозначно задаёт, с какого места продолжать.
+ * В ответе передаётся строкой, клиент возвращает её в параметре searchAfter.
+ */
+public record SearchCursor(float score, int pageId) {
+    private static final int TOKEN_BYTES = Float.BYTES + Integer.BYTES;
+
+    public static SearchCursor decode(String token) {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        if (bytes.length != TOKEN_BYTES) {
+            throw new IllegalArgumentException("Неверный курсор: " + token);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new SearchCursor(buffer.getFloat(), buffer.getInt());
+    }
+
+    public String encode() {
+        byte[] bytes = ByteBuffer.allocate(TOKEN_BYTES).putFloat(score).putInt(pageId).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Идёт ли страница после курсора в порядке выдачи.
+     */
+    public boolean isBefore(float score, int pageId) {
+        return score < this.score || (score == this.score && pageId > this.pageId);
+    }
+}
@@ -0,0 +1,90 @@
+package searchengine.services.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.AppProp;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул для параллельного поиска по сайтам.
+ * Пул и его очередь ограничены: при перегрузке поиск по сайту не ставится
+ * в очередь, а пропускается. Результаты собираются до общего для запроса срока,
+ * не успевшие задачи отменяются, а результат помечается неполным.
+ */
+@Slf4j
+@Component
+public class SearchExecutor {
+    private final ThreadPoolExecutor executor;
+    private final long deadlineNanos;
+
+    public SearchExecutor(AppProp appProp) {
+        AppProp.Search settings = appProp.getSearch();
+        int threads = Math.max(1, settings.getThreads());
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, settings.getQueueCapacity())), runnable -> {
+            Thread thread = new Thread(runnable, "search-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(settings.getDeadlineMillis());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Выполняет задачи параллельно и возвращает результаты тех, что успели завершиться.
+     */
+    public <T> Gathered<T> scatter(List<Callable<T>> tasks) {
+        long deadline = System.nanoTime() + deadlineNanos;
+        boolean partial = false;
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            try {
+                futures.add(executor.submit(task));
+            } catch (RejectedExecutionException e) {
+                log.warn("Пул поиска переполнен, поиск по сайту пропущен");
+                partial = true;
+            }
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                partial = true;
+            } catch (ExecutionException e) {
+                log.error("Ошибка поиска по сайту", e.getCause());
+                partial = true;
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Поиск прерван", e);
+            }
+        }
+        if (partial) {
+            log.warn("Ответили {} из {} сайтов, результаты неполные", results.size(), tasks.size());
+        }
+        return new Gathered<>(results, partial);
+    }
+
+    public record Gathered<T>(List<T> results, boolean partial) {
+    }
+}
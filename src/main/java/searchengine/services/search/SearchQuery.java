@@ -0,0 +1,112 @@
+package searchengine.services.search;
+
+import lombok.Value;
+import searchengine.utilites.Morphology;
+import searchengine.utilites.WordTokenizer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Разобранный поисковый запрос.
+ * Слова в кавычках - фраза, которая должна встретиться на странице подряд.
+ * Фраза с суффиксом ~N - оператор близости: страница не отбрасывается,
+ * но её релевантность растёт, если слова фразы стоят не дальше N лишних слов друг от друга.
+ * Леммы всех слов запроса хранятся без повторов и в алфавитном порядке,
+ * а в words - по словам: у слова может быть несколько нормальных форм,
+ * и страница подходит слову, если на ней есть любая из них.
+ */
+@Value
+public class SearchQuery {
+    private static final int MAX_SLOP_DIGITS = 4;
+
+    List<String> lemmas;
+    List<List<String>> words;
+    List<Phrase> phrases;
+
+    public static SearchQuery parse(String text) {
+        Set<String> lemmas = new TreeSet<>();
+        Set<List<String>> words = new TreeSet<>(Comparator.comparing(List::toString));
+        List<Phrase> phrases = new ArrayList<>();
+        StringBuilder plain = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            int close = c == '"' ? text.indexOf('"', i + 1) : -1;
+            if (close < 0) {
+                plain.append(c == '"' ? ' ' : c);
+                i++;
+                continue;
+            }
+            String phrase = text.substring(i + 1, close);
+            i = close + 1;
+            int slop = Phrase.EXACT;
+            if (i < text.length() && text.charAt(i) == '~') {
+                int end = i + 1;
+                while (end < text.length() && end - i <= MAX_SLOP_DIGITS && Character.isDigit(text.charAt(end))) {
+                    end++;
+                }
+                slop = end > i + 1 ? Integer.parseInt(text.substring(i + 1, end)) : 0;
+                i = end;
+            }
+            List<Token> tokens = tokens(phrase, lemmas, words);
+            if (tokens.size() > 1) {
+                phrases.add(new Phrase(tokens, slop));
+            }
+            plain.append(' ');
+        }
+        WordTokenizer.forEachWord(plain, word -> addWord(lemmasOf(word), lemmas, words));
+        return new SearchQuery(List.copyOf(lemmas), List.copyOf(words), List.copyOf(phrases));
+    }
+
+    public boolean hasPhrases() {
+        return !phrases.isEmpty();
+    }
+
+    private static List<Token> tokens(String phrase, Set<String> lemmas, Set<List<String>> words) {
+        List<Token> tokens = new ArrayList<>();
+        int[] ordinal = {0};
+        WordTokenizer.forEachWord(phrase, word -> {
+            List<String> wordLemmas = lemmasOf(word);
+            if (!wordLemmas.isEmpty()) {
+                tokens.add(new Token(ordinal[0], wordLemmas));
+                addWord(wordLemmas, lemmas, words);
+            }
+            ordinal[0]++;
+        });
+        return tokens;
+    }
+
+    private static void addWord(List<String> wordLemmas, Set<String> lemmas, Set<List<String>> words) {
+        if (!wordLemmas.isEmpty()) {
+            lemmas.addAll(wordLemmas);
+            words.add(List.copyOf(new TreeSet<>(wordLemmas)));
+        }
+    }
+
+    private static List<String> lemmasOf(String word) {
+        return Morphology.getLemma(word).stream()
+                .filter(WordTokenizer::isWord)
+                .toList();
+    }
+
+    /**
+     * @param slop допустимое число лишних слов между словами фразы или EXACT для точной фразы
+     */
+    public record Phrase(List<Token> tokens, int slop) {
+        public static final int EXACT = -1;
+
+        public boolean isExact() {
+            return slop == EXACT;
+        }
+    }
+
+    /**
+     * Слово фразы: его номер внутри фразы и возможные леммы.
+     */
+    public record Token(int ordinal, List<String> lemmas) {
+    }
+}
@@ -0,0 +1,94 @@
+package searchengine.services.search;
+
+import org.jsoup.nodes.Entities;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Строит сниппет по тексту страницы и заранее сохранённым позициям слов запроса.
+ * Близкие вхождения объединяются во фрагменты, в сниппет попадают фрагменты
+ * с наибольшим числом вхождений в порядке следования в тексте.
+ * Текст экранируется, вхождения выделяются тегом b.
+ */
+@Component
+public class SnippetBuilder {
+    private static final int MAX_FRAGMENTS = 3;
+    private static final int FRAGMENT_LENGTH = 120;
+    private static final int CONTEXT = 40;
+
+    /**
+     * @param spans вхождения: пары [начало, конец) подряд, отсортированные по началу
+     */
+    public String build(String text, int[] spans) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        if (spans.length == 0) {
+            return Entities.escape(text.substring(0, wordEnd(text, FRAGMENT_LENGTH))) + "...";
+        }
+
+        List<Fragment> fragments = new ArrayList<>();
+        int i = 0;
+        while (i < spans.length) {
+            int from = i;
+            int limit = spans[i] + FRAGMENT_LENGTH;
+            // Первое вхождение попадает во фрагмент, даже если оно само длиннее FRAGMENT_LENGTH
+            i += 2;
+            while (i < spans.length && spans[i + 1] <= limit) {
+                i += 2;
+            }
+            fragments.add(new Fragment(from, i));
+        }
+
+        StringBuilder snippet = new StringBuilder();
+        fragments.stream()
+                .sorted(Comparator.comparingInt(Fragment::size).reversed())
+                .limit(MAX_FRAGMENTS)
+                .sorted(Comparator.comparingInt(Fragment::from))
+                .forEach(fragment -> appendFragment(snippet, text, spans, fragment));
+        return snippet.toString();
+    }
+
+    private void appendFragment(StringBuilder snippet, String text, int[] spans, Fragment fragment) {
+        int start = wordStart(text, spans[fragment.from()] - CONTEXT);
+        int end = wordEnd(text, spans[fragment.to() - 1] + CONTEXT);
+        int cursor = start;
+        for (int i = fragment.from(); i < fragment.to(); i += 2) {
+            // Одно слово может совпасть с несколькими леммами запроса
+            if (spans[i] < cursor) {
+                continue;
+            }
+            snippet.append(Entities.escape(text.substring(cursor, spans[i])))
+                    .append("<b>")
+                    .append(Entities.escape(text.substring(spans[i], spans[i + 1])))
+                    .append("</b>");
+            cursor = spans[i + 1];
+        }
+        snippet.append(Entities.escape(text.substring(cursor, end))).append("... ");
+    }
+
+    private static int wordStart(String text, int position) {
+        position = Math.max(0, position);
+        while (position > 0 && !Character.isWhitespace(text.charAt(position - 1))) {
+            position--;
+        }
+        return position;
+    }
+
+    private static int wordEnd(String text, int position) {
+        position = Math.min(text.length(), position);
+        while (position < text.length() && !Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private record Fragment(int from, int to) {
+        int size() {
+            return to - from;
+        }
+    }
+}
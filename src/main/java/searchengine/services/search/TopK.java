@@ -0,0 +1,93 @@
+package searchengine.services.search;
+
+/**
+ * Отбор k страниц с наибольшей релевантностью.
+ * Двоичная куча на примитивных массивах: в корне худшая из отобранных страниц,
+ * поэтому каждая следующая страница сравнивается только с ней.
+ * При равной релевантности выше страница с меньшим id.
+ */
+class TopK {
+    private final int[] pageIds;
+    private final float[] scores;
+    private int size;
+
+    TopK(int k) {
+        pageIds = new int[Math.max(0, k)];
+        scores = new float[Math.max(0, k)];
+    }
+
+    void offer(int pageId, float score) {
+        if (pageIds.length == 0) {
+            return;
+        }
+        if (size < pageIds.length) {
+            pageIds[size] = pageId;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (isBetter(pageId, score, 0)) {
+            pageIds[0] = pageId;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Возвращает отобранные страницы по убыванию релевантности. Куча после этого пуста.
+     */
+    RankedPages drain(int totalCount) {
+        int count = size;
+        int[] sortedIds = new int[count];
+        float[] sortedScores = new float[count];
+        for (int i = count - 1; i >= 0; i--) {
+            sortedIds[i] = pageIds[0];
+            sortedScores[i] = scores[0];
+            size--;
+            swap(0, size);
+            siftDown(0, size);
+        }
+        return new RankedPages(totalCount, sortedIds, sortedScores);
+    }
+
+    private boolean isBetter(int pageId, float score, int position) {
+        return score > scores[position] || (score == scores[position] && pageId < pageIds[position]);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!isBetter(pageIds[parent], scores[parent], position)) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position, int limit) {
+        while (true) {
+            int worst = position;
+            int left = position * 2 + 1;
+            int right = left + 1;
+            if (left < limit && !isBetter(pageIds[left], scores[left], worst)) {
+                worst = left;
+            }
+            if (right < limit && !isBetter(pageIds[right], scores[right], worst)) {
+                worst = right;
+            }
+            if (worst == position) {
+                return;
+            }
+            swap(position, worst);
+            position = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = pageIds[a];
+        pageIds[a] = pageIds[b];
+        pageIds[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -9,7 +9,10 @@ import org.jsoup.select.Elements;
 @UtilityClass
 public class CleanHtmlCode {
     public static String clear(String content, String selector) {
-        Document doc = Jsoup.parse(content);
+        return clear(Jsoup.parse(content), selector);
+    }
+
+    public static String clear(Document doc, String selector) {
         Elements elements = doc.select(selector);
 
         StringBuilder text = new StringBuilder();
@@ -1,5 +1,8 @@
 package searchengine.utilites;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.logging.log4j.Marker;
@@ -9,7 +12,6 @@ import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
-import java.util.stream.IntStream;
 
 import static searchengine.constans.Constants.*;
 
@@ -20,6 +22,10 @@ public class Morphology {
     private static EnglishLuceneMorphology englishLuceneMorphology;
     private static RussianLuceneMorphology russianLuceneMorphology;
     private static final Marker INVALID_SYMBOL_MARKER = MarkerManager.getMarker("INVALID_SYMBOL");
+    private static final Cache<String, List<String>> LEMMA_CACHE = Caffeine.newBuilder()
+            .maximumSize(LEMMA_CACHE_SIZE)
+            .recordStats()
+            .build();
 
     static {
         try {
@@ -31,68 +37,58 @@ public class Morphology {
     }
 
     public static HashMap<String, Integer> getLemmaList(String content) {
-        content = content.toLowerCase(Locale.ROOT)
-                .replaceAll(REGEX, "");
         HashMap<String, Integer> lemmaList = new HashMap<>();
-        String[] elements = content.toLowerCase(Locale.ROOT).split("\\s+");
-        for (String el : elements) {
-            List<String> wordsList = getLemma(el);
-            for (String word : wordsList) {
-                int count = lemmaList.getOrDefault(word, 0);
-                lemmaList.put(word, count + 1);
+        WordTokenizer.forEachWord(content, word -> {
+            for (String lemma : getLemma(word)) {
+                lemmaList.merge(lemma, 1, Integer::sum);
             }
-        }
+        });
         return lemmaList;
     }
 
+    /**
+     * Возвращает нормальные формы слова. Результаты кэшируются:
+     * распределение слов в текстах сильно неравномерно, поэтому большая часть
+     * обращений к словарям морфологии заменяется поиском в кэше.
+     */
     public static List<String> getLemma(String word) {
-        List<String> lemmaList = Collections.synchronizedList(new ArrayList<>());
+        return LEMMA_CACHE.get(word, Morphology::computeLemma);
+    }
+
+    public static CacheStats getCacheStats() {
+        return LEMMA_CACHE.stats();
+    }
+
+    public static long getCacheSize() {
+        return LEMMA_CACHE.estimatedSize();
+    }
+
+    private static List<String> computeLemma(String word) {
         try {
-            List<String> baseRusForm = new ArrayList<>();
-            if (word.matches(CYRILLIC_WORD)) {
-                baseRusForm = russianLuceneMorphology.getNormalForms(word);
+            boolean cyrillic = word.matches(CYRILLIC_WORD);
+            boolean latin = word.matches(LATIN_WORD);
+            List<String> normalForms = new ArrayList<>();
+            if (cyrillic) {
+                normalForms.addAll(russianLuceneMorphology.getNormalForms(word));
             }
-            List<String> baseEnForm = new ArrayList<>();
-            if (word.matches(LATIN_WORD)) {
-                baseEnForm = englishLuceneMorphology.getNormalForms(word);
+            if (latin) {
+                normalForms.addAll(englishLuceneMorphology.getNormalForms(word));
             }
-            List<String> normalForms = new ArrayList<>();
-            normalForms.addAll(baseRusForm);
-            normalForms.addAll(baseEnForm);
 
-            if (!isServiceWord(word) && !normalForms.isEmpty()) {
-                lemmaList.addAll(normalForms);
+            if (!normalForms.isEmpty() && !isServiceWord(word, cyrillic, latin)) {
+                return List.copyOf(normalForms);
             }
         } catch (Exception e) {
             log.debug(INVALID_SYMBOL_MARKER.getName(), "Symbol not found - {}", word);
         }
-        return lemmaList;
+        return List.of();
     }
 
-    public static List<Integer> findLemmaIndexInText(String content, String lemma) {
-        String[] elements = content.toLowerCase().split("\\p{Punct}|\\s");
-        List<Integer> lemmaIndexList = new ArrayList<>();
-
-        IntStream.range(0, elements.length)
-                .filter(i -> getLemma(elements[i]).contains(lemma))
-                .forEach(i -> lemmaIndexList.add(getIndex(elements, i)));
-
-        return lemmaIndexList;
-    }
-
-    private static int getIndex(String[] elements, int i) {
-        int index = 0;
-        for (int j = 0; j < i; j++) {
-            index += elements[j].length() + 1;
-        }
-        return index;
-    }
-
-    private static boolean isServiceWord(String word) {
-        if (word.matches(CYRILLIC_WORD)) {
+    private static boolean isServiceWord(String word, boolean cyrillic, boolean latin) {
+        if (cyrillic) {
             return isRuWord(word);
         }
-        if (word.matches(LATIN_WORD)) {
+        if (latin) {
             return isEnWord(word);
         }
         return false;
@@ -103,10 +99,7 @@ public class Morphology {
             return false;
         }
 
-        List<String> morphForm = Collections.synchronizedList(new ArrayList<>());
-        morphForm.addAll(russianLuceneMorphology.getMorphInfo(word));
-
-        return morphForm.parallelStream()
+        return russianLuceneMorphology.getMorphInfo(word).stream()
                 .anyMatch(l -> l.contains("ПРЕДЛ")
                         || l.contains("СОЮЗ")
                         || l.contains("МЕЖД")
@@ -119,10 +112,7 @@ public class Morphology {
             return false;
         }
 
-        List<String> morphForm = Collections.synchronizedList(new ArrayList<>());
-        morphForm.addAll(englishLuceneMorphology.getMorphInfo(word));
-
-        return morphForm.parallelStream().anyMatch(l ->
+        return englishLuceneMorphology.getMorphInfo(word).stream().anyMatch(l ->
                 (l.contains("PREP")
                         || l.contains("CONJ")
                         || l.contains("ADV")
@@ -0,0 +1,76 @@
+package searchengine.utilites;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.OptionalLong;
+
+/**
+ * 64-битный SimHash текста для поиска почти одинаковых страниц.
+ * Признаки - тройки подряд идущих слов; у похожих текстов отпечатки
+ * отличаются в немногих битах, поэтому близость измеряется расстоянием Хэмминга.
+ * Слова берутся без лемматизации, чтобы отпечаток считался до неё.
+ */
+@UtilityClass
+public class SimHash {
+    private static final int SHINGLE_WORDS = 3;
+
+    /**
+     * Отпечаток текста или пустое значение, если в тексте меньше minWords слов:
+     * у коротких страниц (одно меню, страница ошибки) отпечатки совпадают случайно.
+     */
+    public static OptionalLong fingerprint(CharSequence text, int minWords) {
+        int[] weights = new int[Long.SIZE];
+        long[] window = new long[SHINGLE_WORDS];
+        int[] words = {0};
+        WordTokenizer.forEachWord(text, word -> {
+            window[words[0] % SHINGLE_WORDS] = hash(word);
+            words[0]++;
+            if (words[0] < SHINGLE_WORDS) {
+                return;
+            }
+            long shingle = 0;
+            for (int i = 0; i < SHINGLE_WORDS; i++) {
+                // Слово смещается по своей позиции в тройке, чтобы «а б в» и «в б а» различались
+                shingle ^= Long.rotateLeft(window[(words[0] + i) % SHINGLE_WORDS], i * 21);
+            }
+            shingle = mix(shingle);
+            for (int bit = 0; bit < Long.SIZE; bit++) {
+                weights[bit] += ((shingle >>> bit) & 1) == 1 ? 1 : -1;
+            }
+        });
+        if (words[0] < Math.max(minWords, SHINGLE_WORDS)) {
+            return OptionalLong.empty();
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return OptionalLong.of(fingerprint);
+    }
+
+    public static int distance(long first, long second) {
+        return Long.bitCount(first ^ second);
+    }
+
+    // FNV-1a
+    private static long hash(String word) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            hash ^= word.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Финальное перемешивание из MurmurHash3, чтобы биты признака были независимы
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,105 @@
+package searchengine.utilites;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.function.Consumer;
+
+/**
+ * Разбивает текст на слова за один проход без регулярных выражений.
+ * Слово - это отрезок между пробельными символами, в котором после удаления
+ * знаков препинания и цифр остались только кириллические или только
+ * латинские буквы. Слова приводятся к нижнему регистру.
+ */
+@UtilityClass
+public class WordTokenizer {
+    private static final int NONE = 0;
+    private static final int CYRILLIC = 1;
+    private static final int LATIN = 2;
+    private static final int MIXED = 3;
+
+    // Кроме ASCII-пунктуации и цифр из слова удаляются эти символы
+    private static final String SKIPPED_SYMBOLS = "№©◄«»—@…";
+
+    public static void forEachWord(CharSequence text, Consumer<String> consumer) {
+        forEachWord(text, (word, start, end) -> consumer.accept(word));
+    }
+
+    /**
+     * То же, но вместе со словом передаёт его границы в тексте: [start, end),
+     * от первой до последней буквы слова.
+     */
+    public static void forEachWord(CharSequence text, WordConsumer consumer) {
+        StringBuilder word = new StringBuilder(32);
+        int script = NONE;
+        int start = 0;
+        int end = 0;
+        for (int i = 0, length = text.length(); i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (isSeparator(c)) {
+                if ((script == CYRILLIC || script == LATIN) && word.length() > 1) {
+                    consumer.accept(word.toString(), start, end);
+                }
+                word.setLength(0);
+                script = NONE;
+                continue;
+            }
+            if (isSkipped(c) || script == MIXED) {
+                continue;
+            }
+            char lower = Character.toLowerCase(c);
+            int charScript = scriptOf(lower);
+            script = script == NONE || script == charScript ? charScript : MIXED;
+            if (script != MIXED) {
+                if (word.length() == 0) {
+                    start = i;
+                }
+                word.append(lower);
+                end = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что строка из двух и более букв одного алфавита.
+     */
+    public static boolean isWord(String text) {
+        if (text.length() < 2) {
+            return false;
+        }
+        int script = scriptOf(Character.toLowerCase(text.charAt(0)));
+        if (script == MIXED) {
+            return false;
+        }
+        for (int i = 1; i < text.length(); i++) {
+            if (scriptOf(Character.toLowerCase(text.charAt(i))) != script) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int scriptOf(char lower) {
+        if (lower >= 'а' && lower <= 'я') {
+            return CYRILLIC;
+        }
+        if (lower >= 'a' && lower <= 'z') {
+            return LATIN;
+        }
+        return MIXED;
+    }
+
+    private static boolean isSeparator(char c) {
+        return Character.isWhitespace(c) || c == '\u00A0';
+    }
+
+    private static boolean isSkipped(char c) {
+        return (c >= '!' && c <= '/') || (c >= ':' && c <= '@') || (c >= '[' && c <= '`') || (c >= '{' && c <= '~')
+                || (c >= '0' && c <= '9')
+                || SKIPPED_SYMBOLS.indexOf(c) >= 0;
+    }
+
+    @FunctionalInterface
+    public interface WordConsumer {
+        void accept(String word, int start, int end);
+    }
+}
@@ -0,0 +1,67 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+import searchengine.services.dto.Suggestion;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LemmaTrieTest {
+    private final LemmaTrie trie = new LemmaTrie(
+            List.of("дом", "дома", "домашний", "домик", "дорога", "кот", "котёнок"),
+            new int[]{10, 3, 7, 7, 12, 5, 8});
+
+    @Test
+    void completesPrefixByDescendingFrequency() {
+        assertThat(trie.complete("дом", 10)).extracting(Suggestion::getLemma)
+                .containsExactly("дом", "домашний", "домик", "дома");
+    }
+
+    @Test
+    void returnsOnlyTopLimitFromLargeRange() {
+        assertThat(trie.complete("до", 2)).containsExactly(new Suggestion("дорога", 12), new Suggestion("дом", 10));
+        assertThat(trie.complete("до", 0)).isEmpty();
+    }
+
+    @Test
+    void emptyPrefixCoversWholeDictionary() {
+        assertThat(trie.complete("", 3)).extracting(Suggestion::getLemma)
+                .containsExactly("дорога", "дом", "котёнок");
+    }
+
+    @Test
+    void prefixOutsideDictionaryFindsNothing() {
+        assertThat(trie.complete("я", 5)).isEmpty();
+        assertThat(trie.complete("котёнокк", 5)).isEmpty();
+        assertThat(trie.complete("а", 5)).isEmpty();
+        assertThat(new LemmaTrie(List.of(), new int[0]).complete("", 5)).isEmpty();
+    }
+
+    @Test
+    void wholeLemmaIsItsOwnPrefix() {
+        assertThat(trie.complete("котёнок", 5)).containsExactly(new Suggestion("котёнок", 8));
+    }
+
+    @Test
+    void frequencyUpdatesReorderSuggestions() {
+        LemmaTrie updated = trie.withFrequencies(Map.of("дома", 20, "дом", -10));
+
+        assertThat(updated.complete("дом", 10)).containsExactly(
+                new Suggestion("дома", 23), new Suggestion("домашний", 7), new Suggestion("домик", 7));
+        // Исходный словарь не меняется
+        assertThat(trie.complete("дом", 1)).containsExactly(new Suggestion("дом", 10));
+    }
+
+    @Test
+    void newLemmasAreInsertedInOrder() {
+        LemmaTrie updated = trie.withFrequencies(Map.of("домовой", 9, "аист", 1, "кот", 1));
+
+        assertThat(updated.size()).isEqualTo(9);
+        assertThat(updated.complete("дом", 2)).extracting(Suggestion::getLemma).containsExactly("дом", "домовой");
+        assertThat(updated.complete("а", 5)).containsExactly(new Suggestion("аист", 1));
+        assertThat(updated.complete("кот", 1)).containsExactly(new Suggestion("котёнок", 8));
+        assertThat(updated.complete("кот", 2)).last().isEqualTo(new Suggestion("кот", 6));
+    }
+}
@@ -0,0 +1,21 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PositionCodecTest {
+
+    @Test
+    void ordinalsRoundTrip() {
+        int[] ordinals = {0, 1, 2, 127, 128, 16_384, 2_000_000};
+
+        assertThat(PositionCodec.decodeOrdinals(PositionCodec.encodeOrdinals(ordinals))).containsExactly(ordinals);
+    }
+
+    @Test
+    void missingOrdinalsDecodeToEmpty() {
+        assertThat(PositionCodec.decodeOrdinals(PositionCodec.encodeOrdinals(new int[0]))).isEmpty();
+        assertThat(PositionCodec.decodeOrdinals(null)).isEmpty();
+    }
+}
@@ -0,0 +1,39 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+import searchengine.services.dto.Suggestion;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestIndexTest {
+
+    @Test
+    void mergeSumsFrequenciesOfSameLemmaAcrossSites() {
+        SuggestIndex.SiteLemmas first = new SuggestIndex.SiteLemmas(
+                new String[]{"дом", "дорога", "кот"}, new int[]{4, 1, 2});
+        SuggestIndex.SiteLemmas second = new SuggestIndex.SiteLemmas(
+                new String[]{"домик", "дорога", "кот"}, new int[]{3, 6, 1});
+        SuggestIndex.SiteLemmas empty = new SuggestIndex.SiteLemmas(new String[0], new int[0]);
+
+        LemmaTrie trie = SuggestIndex.merge(List.of(first, second, empty));
+
+        assertThat(trie.size()).isEqualTo(4);
+        assertThat(trie.complete("до", 10)).containsExactly(
+                new Suggestion("дорога", 7), new Suggestion("дом", 4), new Suggestion("домик", 3));
+        assertThat(trie.complete("кот", 10)).containsExactly(new Suggestion("кот", 3));
+    }
+
+    @Test
+    void siteFrequencyUpdateAddsAndDropsLemmas() {
+        SuggestIndex.SiteLemmas site = new SuggestIndex.SiteLemmas(
+                new String[]{"дом", "кот"}, new int[]{2, 1});
+
+        SuggestIndex.SiteLemmas updated = site.withFrequencies(Map.of("кот", -1, "дорога", 1, "дом", 1));
+
+        assertThat(updated.lemmas()).containsExactly("дом", "дорога");
+        assertThat(updated.frequencies()).containsExactly(3, 1);
+    }
+}
@@ -0,0 +1,96 @@
+package searchengine.services.parsers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearDuplicateIndexTest {
+    private static final int MAX_DISTANCE = 3;
+
+    @Test
+    void findsFingerprintsWithinMaxDistanceWhereverTheBitsDiffer() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 1000; trial++) {
+            NearDuplicateIndex index = index();
+            long fingerprint = random.nextLong();
+            index.findOrAdd(fingerprint, "original");
+
+            long near = flip(fingerprint, trial % (MAX_DISTANCE + 1), random);
+
+            assertThat(index.findOrAdd(near, "copy")).contains("original");
+        }
+    }
+
+    @Test
+    void doesNotFindFingerprintsFartherThanMaxDistance() {
+        Random random = new Random(2);
+        for (int trial = 0; trial < 1000; trial++) {
+            NearDuplicateIndex index = index();
+            long fingerprint = random.nextLong();
+            index.findOrAdd(fingerprint, "original");
+
+            long far = flip(fingerprint, MAX_DISTANCE + 1 + trial % 20, random);
+
+            assertThat(index.findOrAdd(far, "other")).isEmpty();
+        }
+    }
+
+    @Test
+    void pageIsNotDuplicateOfItsOwnPreviousFingerprint() {
+        NearDuplicateIndex index = index();
+        index.add(0b1011L, "page");
+
+        assertThat(index.findOrAdd(0b1010L, "page")).isEmpty();
+        assertThat(index.findOrAdd(0b1010L, "alias")).contains("page");
+    }
+
+    @Test
+    void nearlyEqualTextsAreFoundAndDifferentTextsAreNot() {
+        NearDuplicateIndex index = index();
+        String text = text(1, 400);
+        index.findOrAdd(index.fingerprint(text).getAsLong(), "original");
+
+        assertThat(index.findOrAdd(index.fingerprint(text + " обновлено сегодня").getAsLong(), "copy"))
+                .contains("original");
+        assertThat(index.findOrAdd(index.fingerprint(text(2, 400)).getAsLong(), "other")).isEmpty();
+    }
+
+    @Test
+    void shortTextsAndDisabledIndexHaveNoFingerprint() {
+        assertThat(index().fingerprint(text(1, 49))).isEmpty();
+        assertThat(new NearDuplicateIndex(false, 50, MAX_DISTANCE).fingerprint(text(1, 400))).isEmpty();
+    }
+
+    private static NearDuplicateIndex index() {
+        return new NearDuplicateIndex(true, 50, MAX_DISTANCE);
+    }
+
+    private static long flip(long fingerprint, int bits, Random random) {
+        Set<Integer> positions = new HashSet<>();
+        while (positions.size() < bits) {
+            positions.add(random.nextInt(Long.SIZE));
+        }
+        for (int position : positions) {
+            fingerprint ^= 1L << position;
+        }
+        return fingerprint;
+    }
+
+    // Случайные «слова» из кириллических букв, чтобы тройки слов почти не повторялись
+    private static String text(long seed, int words) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            int length = 3 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                text.append((char) ('а' + random.nextInt(32)));
+            }
+            text.append(' ');
+        }
+        return text.toString();
+    }
+}
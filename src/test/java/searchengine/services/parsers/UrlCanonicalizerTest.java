@@ -0,0 +1,60 @@
+package searchengine.services.parsers;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import searchengine.config.AppProp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UrlCanonicalizerTest {
+    private static final String SITE = "https://example.com";
+
+    private final AppProp appProp = new AppProp();
+    private final UrlCanonicalizer canonicalizer = new UrlCanonicalizer(appProp);
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', textBlock = """
+            # схема и хост в нижнем регистре, путь как есть
+            HTTPS://Example.COM/Path                          | https://example.com/Path
+            # порт по умолчанию и фрагмент отбрасываются
+            https://example.com:443/a                         | https://example.com/a
+            https://example.com/a#section                     | https://example.com/a
+            # http, www. и порт 80 того же сайта приводятся к адресу из конфигурации
+            http://example.com:80/a                           | https://example.com/a
+            https://www.example.com/a                         | https://example.com/a
+            # порт, отличный от порта сайта, - другой сайт
+            https://example.com:8443/a                        | https://example.com:8443/a
+            # завершающий слэш убирается, корень записывается как в конфигурации
+            https://example.com/a/                            | https://example.com/a
+            https://example.com/                              | https://example.com
+            https://www.example.com                           | https://example.com
+            # метки и идентификаторы кликов удаляются, остальные параметры сортируются
+            https://example.com/a?utm_source=x&b=2&gclid=1&a=1 | https://example.com/a?a=1&b=2
+            https://example.com/a?UTM_Medium=cpc              | https://example.com/a
+            # сегменты . и .. раскрываются
+            https://example.com/a/b/../c/./d                  | https://example.com/a/c/d
+            # чужой хост только нормализуется
+            HTTP://Other.com:80/X/?b=1&a=2                    | http://other.com/X?a=2&b=1
+            # неразбираемые адреса и адреса без хоста не меняются
+            https://example.com/a b                           | https://example.com/a b
+            mailto:info@example.com                           | mailto:info@example.com
+            """)
+    void canonicalizes(String url, String expected) {
+        assertThat(canonicalizer.canonicalize(url, SITE)).isEqualTo(expected);
+    }
+
+    @Test
+    void siteRootKeepsTrailingSlashFromConfiguration() {
+        assertThat(canonicalizer.canonicalize("https://www.example.com", SITE + "/")).isEqualTo(SITE + "/");
+        assertThat(canonicalizer.canonicalize("https://example.com/a/", SITE + "/")).isEqualTo(SITE + "/a");
+    }
+
+    @Test
+    void disabledCanonicalizationReturnsUrlUnchanged() {
+        appProp.getCanonicalization().setEnabled(false);
+
+        assertThat(canonicalizer.canonicalize("HTTPS://www.Example.com/a/?utm_source=x", SITE))
+                .isEqualTo("HTTPS://www.Example.com/a/?utm_source=x");
+    }
+}
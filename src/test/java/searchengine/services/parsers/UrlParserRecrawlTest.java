@@ -0,0 +1,110 @@
+package searchengine.services.parsers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import searchengine.config.AppProp;
+import searchengine.config.SitesList;
+import searchengine.services.dto.PageStatistics;
+import searchengine.services.dto.PageVersion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UrlParserRecrawlTest {
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+    private HostScheduler hostScheduler;
+    private UrlParser urlParser;
+    private String address;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> respond(exchange, 200, "<p>Главная</p>"));
+        server.createContext("/cached", exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+            } else {
+                respond(exchange, 200, "<p>Закэшированная страница</p>");
+            }
+        });
+        server.createContext("/same", exchange -> respond(exchange, 200, "<p>Та же страница</p>"));
+        server.createContext("/changed", exchange -> respond(exchange, 200, "<p>Новый текст</p>"));
+        server.createContext("/broken", exchange -> respond(exchange, 500, "<p>Ошибка</p>"));
+        server.start();
+        address = "http://localhost:" + server.getAddress().getPort();
+
+        AppProp appProp = new AppProp();
+        appProp.setUserAgent("test");
+        appProp.setReferrer("http://localhost");
+        appProp.getCrawler().setFetchThreads(2);
+        appProp.getCrawler().setParseThreads(2);
+        appProp.getCrawler().setRequestsPerSecond(100);
+        SitesList sitesList = new SitesList();
+        sitesList.setSites(List.of());
+        hostScheduler = new HostScheduler(appProp, sitesList);
+        urlParser = new UrlParser(appProp, hostScheduler, new UrlCanonicalizer(appProp));
+    }
+
+    @AfterEach
+    void stopServer() {
+        hostScheduler.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void recrawlReindexesOnlyChangedPages() {
+        String sameHash = urlParser.fetchPage(address + "/same").getContentHash();
+        Map<String, PageVersion> versions = Map.of(
+                address + "/cached", new PageVersion(1, ETAG, null, "old"),
+                address + "/same", new PageVersion(2, null, null, sameHash),
+                address + "/changed", new PageVersion(3, null, null, "old"),
+                address + "/broken", new PageVersion(4, "\"b1\"", "Mon, 01 Jan 2024 00:00:00 GMT", "old"));
+        Map<String, PageStatistics> pages = new ConcurrentHashMap<>();
+
+        urlParser.recrawl(address, versions.keySet(), versions::get, page -> pages.put(page.getUrl(), page));
+
+        assertThat(pages).containsOnlyKeys(address, address + "/cached", address + "/same",
+                address + "/changed", address + "/broken");
+
+        PageStatistics cached = pages.get(address + "/cached");
+        assertThat(cached.isModified()).isFalse();
+        assertThat(cached.getEtag()).isEqualTo(ETAG);
+
+        assertThat(pages.get(address + "/same").isModified()).isFalse();
+
+        PageStatistics changed = pages.get(address + "/changed");
+        assertThat(changed.isModified()).isTrue();
+        assertThat(changed.getCode()).isEqualTo(200);
+        assertThat(changed.getContent()).contains("Новый текст");
+
+        // Сбой загрузки известной страницы не должен стирать её из индекса
+        PageStatistics broken = pages.get(address + "/broken");
+        assertThat(broken.isModified()).isFalse();
+        assertThat(broken.getEtag()).isEqualTo("\"b1\"");
+        assertThat(broken.getLastModified()).isEqualTo("Mon, 01 Jan 2024 00:00:00 GMT");
+
+        assertThat(pages.get(address).isModified()).isTrue();
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = ("<html><body>" + body + "</body></html>").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package searchengine.services.search;
+
+import org.junit.jupiter.api.Test;
+import searchengine.services.dto.PageLemmas;
+import searchengine.services.index.PositionCodec;
+import searchengine.services.parsers.PageAnalyzer;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PhraseEvaluatorTest {
+    private final PageAnalyzer pageAnalyzer = new PageAnalyzer();
+
+    @Test
+    void exactPhraseMatchesOnlyConsecutiveWords() {
+        PageLemmas page = page("ноутбуки", "купить игровой ноутбук в интернет магазине");
+
+        assertThat(containsPhrase("\"игровой ноутбук\"", page)).isTrue();
+        assertThat(containsPhrase("\"интернет магазин\"", page)).isTrue();
+        assertThat(containsPhrase("\"купить ноутбук\"", page)).isFalse();
+        assertThat(containsPhrase("\"ноутбук игровой\"", page)).isFalse();
+    }
+
+    @Test
+    void phraseDoesNotJoinEndOfTitleWithStartOfBody() {
+        PageLemmas page = page("интернет магазин", "ноутбук купить");
+
+        assertThat(containsPhrase("\"магазин ноутбук\"", page)).isFalse();
+        assertThat(containsPhrase("\"интернет магазин\"", page)).isTrue();
+        assertThat(containsPhrase("\"ноутбук купить\"", page)).isTrue();
+    }
+
+    @Test
+    void proximityBoostsOnlyWordsWithinSlop() {
+        PageLemmas page = page("", "купить игровой ноутбук");
+        SearchQuery near = SearchQuery.parse("\"купить ноутбук\"~1");
+        SearchQuery far = SearchQuery.parse("\"купить ноутбук\"~0");
+
+        int[][] ordinals = ordinals(near.getPhrases().get(0), page);
+
+        assertThat(PhraseEvaluator.minimalSpan(ordinals)).isEqualTo(2);
+        assertThat(PhraseEvaluator.proximityBoost(near.getPhrases().get(0), ordinals, 0.5)).isEqualTo(1.25F);
+        assertThat(PhraseEvaluator.proximityBoost(far.getPhrases().get(0), ordinals, 0.5)).isEqualTo(1F);
+    }
+
+    @Test
+    void minimalSpanTakesClosestOccurrences() {
+        int[][] ordinals = {{0, 10, 20}, {4, 17}, {12, 30}};
+
+        assertThat(PhraseEvaluator.minimalSpan(ordinals)).isEqualTo(7);
+        assertThat(PhraseEvaluator.minimalSpan(new int[][]{{1, 2}, {}})).isEqualTo(Integer.MAX_VALUE);
+    }
+
+    private PageLemmas page(String title, String body) {
+        return pageAnalyzer.analyze(new PageAnalyzer.PageText(title, body));
+    }
+
+    private static boolean containsPhrase(String query, PageLemmas page) {
+        SearchQuery.Phrase phrase = SearchQuery.parse(query).getPhrases().get(0);
+        return PhraseEvaluator.containsPhrase(phrase, ordinals(phrase, page));
+    }
+
+    /**
+     * Номера слов фразы на странице так, как их читает поиск: через кодирование в таблицу index.
+     */
+    private static int[][] ordinals(SearchQuery.Phrase phrase, PageLemmas page) {
+        return phrase.tokens().stream()
+                .map(token -> token.lemmas().stream()
+                        .map(lemma -> PositionCodec.encodeOrdinals(page.getOrdinals().getOrDefault(lemma, new int[0])))
+                        .flatMapToInt(encoded -> Arrays.stream(PositionCodec.decodeOrdinals(encoded)))
+                        .sorted()
+                        .distinct()
+                        .toArray())
+                .toArray(int[][]::new);
+    }
+}
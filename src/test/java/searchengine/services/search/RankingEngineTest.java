@@ -0,0 +1,47 @@
+package searchengine.services.search;
+
+import org.junit.jupiter.api.Test;
+import searchengine.services.index.PostingList;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RankingEngineTest {
+    private final RankingEngine rankingEngine = new RankingEngine();
+    private final Scorer scorer = new RankSumScorer();
+
+    @Test
+    void pageMatchesWordThroughAnyOfItsLemmas() {
+        // "стали" -> {сталь, стать}: страница 2 содержит только "сталь", страница 3 - только "стать"
+        PostingList steel = list(1, new int[]{1, 2}, 1F);
+        PostingList become = list(2, new int[]{1, 3}, 2F);
+        PostingList price = list(3, new int[]{1, 2, 3, 4}, 1F);
+
+        RankedPages pages = rankingEngine.rank(List.of(List.of(steel, become), List.of(price)), 10, scorer);
+
+        assertThat(pages.getTotalCount()).isEqualTo(3);
+        assertThat(pages.getPageIds()).containsExactly(1, 3, 2);
+        // На странице 1 есть обе леммы слова, вклады складываются
+        assertThat(pages.score(0)).isEqualTo(4F);
+    }
+
+    @Test
+    void pageWithoutOneOfTheWordsIsDropped() {
+        PostingList first = list(1, new int[]{1, 5, 9}, 1F);
+        PostingList second = list(2, new int[]{2, 5, 7, 9}, 1F);
+        PostingList third = list(3, new int[]{9}, 1F);
+
+        RankedPages pages = rankingEngine.rank(List.of(List.of(first), List.of(second), List.of(third)), 10, scorer);
+
+        assertThat(pages.getPageIds()).containsExactly(9);
+        assertThat(pages.getTotalCount()).isEqualTo(1);
+    }
+
+    private static PostingList list(int lemmaId, int[] pageIds, float rank) {
+        float[] ranks = new float[pageIds.length];
+        Arrays.fill(ranks, rank);
+        return new PostingList(lemmaId, pageIds, ranks);
+    }
+}
@@ -0,0 +1,45 @@
+package searchengine.services.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchQueryTest {
+
+    @Test
+    void quotedWordsBecomeExactPhraseAndStayQueryWords() {
+        SearchQuery query = SearchQuery.parse("\"игровой ноутбук\" купить");
+
+        assertThat(query.getPhrases()).hasSize(1);
+        SearchQuery.Phrase phrase = query.getPhrases().get(0);
+        assertThat(phrase.isExact()).isTrue();
+        assertThat(phrase.tokens()).extracting(SearchQuery.Token::ordinal).containsExactly(0, 1);
+        assertThat(phrase.tokens()).extracting(SearchQuery.Token::lemmas)
+                .containsExactly(List.of("игровой"), List.of("ноутбук"));
+        assertThat(query.getWords()).hasSize(3);
+    }
+
+    @Test
+    void tildeAfterPhraseSetsSlop() {
+        assertThat(SearchQuery.parse("\"купить ноутбук\"~3").getPhrases().get(0).slop()).isEqualTo(3);
+        assertThat(SearchQuery.parse("\"купить ноутбук\"~").getPhrases().get(0).slop()).isZero();
+    }
+
+    @Test
+    void unterminatedQuoteIsPlainText() {
+        SearchQuery query = SearchQuery.parse("\"купить ноутбук");
+
+        assertThat(query.hasPhrases()).isFalse();
+        assertThat(query.getWords()).containsExactly(List.of("купить"), List.of("ноутбук"));
+    }
+
+    @Test
+    void singleWordInQuotesIsNotPhrase() {
+        SearchQuery query = SearchQuery.parse("\"ноутбук\" купить");
+
+        assertThat(query.hasPhrases()).isFalse();
+        assertThat(query.getLemmas()).containsExactly("купить", "ноутбук");
+    }
+}
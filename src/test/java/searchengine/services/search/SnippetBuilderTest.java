@@ -0,0 +1,34 @@
+package searchengine.services.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class SnippetBuilderTest {
+    private final SnippetBuilder snippetBuilder = new SnippetBuilder();
+
+    @Test
+    void buildsFragmentsForNearbySpans() {
+        String text = "Купить ноутбук недорого: ноутбук с доставкой по всей России";
+
+        String snippet = snippetBuilder.build(text, new int[]{7, 14, 25, 32});
+
+        assertThat(snippet).contains("<b>ноутбук</b> недорого: <b>ноутбук</b>");
+    }
+
+    @Test
+    void spanLongerThanFragmentDoesNotHang() {
+        String longWord = "а".repeat(200);
+        String text = "начало " + longWord + " конец слово";
+        int start = text.indexOf(longWord);
+        int word = text.indexOf("слово");
+
+        String snippet = assertTimeoutPreemptively(Duration.ofSeconds(1), () -> snippetBuilder.build(text,
+                new int[]{start, start + longWord.length(), word, word + "слово".length()}));
+
+        assertThat(snippet).contains("<b>" + longWord + "</b>").contains("<b>слово</b>");
+    }
+}